@@ -1,7 +1,10 @@
 package api;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -36,6 +39,16 @@ public class Util
     return stopwordSet.isStopWord(s);
   }
   
+  /**
+   * Returns the stop words recognized by isStopWord().
+   * @return
+   *   read-only list of the stop words
+   */
+  public static List<String> stopwords()
+  {
+    return stopwordSet.list();
+  }
+  
   /**
    * Returns true if the given link should be ignored.  A link should be ignored
    * if it a) links to another section of the same page, or b) has a path
@@ -91,6 +104,11 @@ public class Util
     {
       return words.contains(s);
     }
+
+    public List<String> list()
+    {
+      return Collections.unmodifiableList(Arrays.asList(stopwords));
+    }
     
     /**
      * Longer list of stop words from https://www.ranks.nl/stopwords
@@ -0,0 +1,191 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import api.TaggedVertex;
+import pa1.Index;
+import pa1.PageStore;
+import pa1.RankComparator;
+
+/**
+ * Reports the latency of searchWithAnd, searchWithOr and searchAndNot for
+ * two common terms on a synthetic corpus, for Index and for the original
+ * methods, which combined the two result lists with List.contains and
+ * found each page's other rank by scanning the list. The original methods
+ * are given the lists from Index.search, so only combining is timed, and
+ * each runs once since its cost grows with the product of the list sizes.
+ * Usage: BooleanQueryBenchmark [documents] [queries]
+ */
+public class BooleanQueryBenchmark
+{
+  public static void main(String[] args)
+  {
+    int documents = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = SyntheticCorpus.fill(store, documents, 100, 100000, 29);
+    Index index = new Index(urls, store);
+    index.makeIndex();
+
+    // the second and third most common words, each on a third of the pages or more
+    String w1 = SyntheticCorpus.term(1);
+    String w2 = SyntheticCorpus.term(2);
+    List<TaggedVertex<String>> search1 = index.search(w1);
+    List<TaggedVertex<String>> search2 = index.search(w2);
+    System.out.printf("%,d documents; %s on %,d pages, %s on %,d pages%n", documents, w1, search1.size(), w2,
+        search2.size());
+
+    for (int round = 0; round < 3; round++)
+    {
+      long start = System.nanoTime();
+      long hits = 0;
+      for (int q = 0; q < queries; q++)
+      {
+        hits += index.searchWithAnd(w1, w2).size();
+      }
+      report("Index", "AND", start, queries, hits);
+      start = System.nanoTime();
+      hits = 0;
+      for (int q = 0; q < queries; q++)
+      {
+        hits += index.searchWithOr(w1, w2).size();
+      }
+      report("Index", "OR", start, queries, hits);
+      start = System.nanoTime();
+      hits = 0;
+      for (int q = 0; q < queries; q++)
+      {
+        hits += index.searchAndNot(w1, w2).size();
+      }
+      report("Index", "ANDNOT", start, queries, hits);
+    }
+
+    long start = System.nanoTime();
+    report("original", "AND", start, 1, originalAnd(search1, search2).size());
+    start = System.nanoTime();
+    report("original", "OR", start, 1, originalOr(search1, search2).size());
+    start = System.nanoTime();
+    report("original", "ANDNOT", start, 1, originalAndNot(search1, search2).size());
+  }
+
+  private static void report(String name, String operator, long start, int queries, long hits)
+  {
+    System.out.printf("%-8s %-6s %10.3f ms/query  (%d hits)%n", name, operator,
+        (System.nanoTime() - start) / 1e6 / queries, hits / queries);
+  }
+
+  /**
+   * The original searchWithAnd() after its two searches: each page of the
+   * shorter list is looked for in the urls of the longer one.
+   */
+  private static List<TaggedVertex<String>> originalAnd(List<TaggedVertex<String>> search1,
+      List<TaggedVertex<String>> search2)
+  {
+    if (search1.size() > search2.size())
+    {
+      List<TaggedVertex<String>> t = search1;
+      search1 = search2;
+      search2 = t;
+    }
+    List<TaggedVertex<String>> rankedAnd = new ArrayList<TaggedVertex<String>>();
+    List<String> search2Urls = data(search2);
+    for (TaggedVertex<String> url : search1)
+    {
+      if (search2Urls.contains(url.getVertexData()))
+      {
+        int rank = url.getTagValue() + rankFromList(url.getVertexData(), search2);
+        if (rank > 0)
+        {
+          rankedAnd.add(new TaggedVertex<String>(url.getVertexData(), rank));
+        }
+      }
+    }
+    rankedAnd.sort(new RankComparator());
+    return rankedAnd;
+  }
+
+  /**
+   * The original searchWithOr() after its two searches: the longer list is
+   * copied, and each page of the shorter list found in it is removed from
+   * the copy and added again with the sum of its ranks.
+   */
+  private static List<TaggedVertex<String>> originalOr(List<TaggedVertex<String>> search1,
+      List<TaggedVertex<String>> search2)
+  {
+    if (search1.size() > search2.size())
+    {
+      List<TaggedVertex<String>> t = search1;
+      search1 = search2;
+      search2 = t;
+    }
+    List<TaggedVertex<String>> rankedOr = new ArrayList<TaggedVertex<String>>(search2);
+    List<String> search2Urls = data(search2);
+    for (TaggedVertex<String> url : search1)
+    {
+      if (search2Urls.contains(url.getVertexData()))
+      {
+        int rank = url.getTagValue() + rankFromList(url.getVertexData(), search2);
+        if (rank > 0)
+        {
+          rankedOr.remove(index(url.getVertexData(), rankedOr));
+          rankedOr.add(new TaggedVertex<String>(url.getVertexData(), rank));
+        }
+      }
+      else if (url.getTagValue() > 0)
+      {
+        rankedOr.add(new TaggedVertex<String>(url.getVertexData(), url.getTagValue()));
+      }
+    }
+    rankedOr.sort(new RankComparator());
+    return rankedOr;
+  }
+
+  /**
+   * The original searchAndNot() after its two searches.
+   */
+  private static List<TaggedVertex<String>> originalAndNot(List<TaggedVertex<String>> search1,
+      List<TaggedVertex<String>> search2)
+  {
+    List<TaggedVertex<String>> rankedNot = new ArrayList<TaggedVertex<String>>();
+    List<String> search2Urls = data(search2);
+    for (TaggedVertex<String> url : search1)
+    {
+      if (!search2Urls.contains(url.getVertexData()) && url.getTagValue() > 0)
+      {
+        rankedNot.add(url);
+      }
+    }
+    rankedNot.sort(new RankComparator());
+    return rankedNot;
+  }
+
+  private static List<String> data(List<TaggedVertex<String>> list)
+  {
+    List<String> data = new ArrayList<String>(list.size());
+    for (TaggedVertex<String> tv : list)
+    {
+      data.add(tv.getVertexData());
+    }
+    return data;
+  }
+
+  private static int rankFromList(String url, List<TaggedVertex<String>> list)
+  {
+    int i = index(url, list);
+    return i < 0 ? 0 : list.get(i).getTagValue();
+  }
+
+  private static int index(String url, List<TaggedVertex<String>> list)
+  {
+    for (int i = 0; i < list.size(); i++)
+    {
+      if (list.get(i).getVertexData().equals(url))
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,105 @@
+package example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import api.Graph;
+import pa1.Crawler;
+import pa1.HostRateLimiter;
+
+/**
+ * Crawls a synthetic site served by a local HTTP server with increasing
+ * maxPages and reports the crawl time per page fetched, which stays flat
+ * when the crawl is a single linear BFS. Each page links to a few pages chosen
+ * at random, so the link graph has many more pages than any crawl visits.
+ * Usage: CrawlScalingBenchmark [threads] [links per page]
+ */
+public class CrawlScalingBenchmark
+{
+  private static final int SITE_PAGES = 1000000;
+  private static final AtomicInteger requests = new AtomicInteger();
+
+  public static void main(String[] args) throws IOException
+  {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+    final int links = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    // without it, delayed ACKs add about 40 ms to every request
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        requests.incrementAndGet();
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring(1));
+        Random rand = new Random(id);
+        Set<Integer> targets = new LinkedHashSet<Integer>();
+        while (targets.size() < links)
+        {
+          int target = rand.nextInt(SITE_PAGES);
+          if (target != id)
+          {
+            targets.add(target);
+          }
+        }
+        StringBuilder sb = new StringBuilder("<html><body><p>Page ").append(id).append("</p>");
+        for (int target : targets)
+        {
+          sb.append("<a href='/").append(target).append("'>page ").append(target).append("</a> ");
+        }
+        byte[] body = sb.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        exchange.close();
+      }
+    });
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    server.setExecutor(pool);
+    server.start();
+    String seed = "http://localhost:" + server.getAddress().getPort() + "/0";
+
+    try
+    {
+      // warm up the JVM and the server's connections
+      crawl(seed, 8000, threads);
+      for (int maxPages : new int[] { 1000, 2000, 4000, 8000, 16000, 32000 })
+      {
+        requests.set(0);
+        long start = System.nanoTime();
+        int pages = crawl(seed, maxPages, threads);
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("maxPages %6d: %6d vertices, %6d pages fetched in %8.1f ms, %6.1f us per page fetched%n",
+            maxPages, pages, requests.get(), millis, millis * 1000 / requests.get());
+      }
+    }
+    finally
+    {
+      server.stop(0);
+      pool.shutdown();
+    }
+  }
+
+  private static int crawl(String seed, int maxPages, int threads)
+  {
+    Crawler crawler = new Crawler(seed, Integer.MAX_VALUE, maxPages, threads);
+    crawler.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+    Graph<String> web = crawler.crawl();
+    return web.vertexData().size();
+  }
+}
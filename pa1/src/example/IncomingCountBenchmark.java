@@ -0,0 +1,99 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import pa1.MyGraph;
+
+/**
+ * Reports the time of vertexDataWithIncomingCounts() and of getIncoming()
+ * for every vertex of a MyGraph, which reads the reverse adjacency arrays
+ * kept up to date by addEdge(), at 10k, 100k and 1M vertices. For
+ * comparison it also times the original getIncoming(), which scanned every
+ * adjacency list once per vertex, on the sizes where that finishes in
+ * reasonable time.
+ * Usage: IncomingCountBenchmark [edges per vertex] [largest size for the scan]
+ */
+public class IncomingCountBenchmark
+{
+  public static void main(String[] args)
+  {
+    int degree = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int scanLimit = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+
+    for (int vertices : new int[] { 10000, 100000, 1000000 })
+    {
+      ArrayList<String> urls = new ArrayList<String>(vertices);
+      for (int i = 0; i < vertices; i++)
+      {
+        urls.add("http://example.org/page/" + i);
+      }
+      MyGraph<String> graph = new MyGraph<String>(urls);
+      Random rand = new Random(11);
+      long start = System.nanoTime();
+      for (int i = 0; i < vertices; i++)
+      {
+        for (int k = 0; k < degree; k++)
+        {
+          int target = rand.nextInt(vertices);
+          if (target != i && !graph.getAdjList().get(urls.get(i)).contains(urls.get(target)))
+          {
+            graph.addEdge(urls.get(i), urls.get(target));
+          }
+        }
+      }
+      System.out.printf("%,d vertices: edges added in %.1f ms%n", vertices, (System.nanoTime() - start) / 1e6);
+
+      for (int round = 0; round < 3; round++)
+      {
+        start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < vertices; i++)
+        {
+          sum += graph.getIncoming(i).size();
+        }
+        double incoming = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        int counts = graph.vertexDataWithIncomingCounts().size();
+        System.out.printf("  getIncoming for all %.1f ms (%d edges), vertexDataWithIncomingCounts %.1f ms (%d vertices)%n",
+            incoming, sum, (System.nanoTime() - start) / 1e6, counts);
+      }
+
+      if (vertices <= scanLimit)
+      {
+        start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < vertices; i++)
+        {
+          sum += scanIncoming(graph, i).size();
+        }
+        System.out.printf("  original scan for all %.1f ms (%d edges)%n", (System.nanoTime() - start) / 1e6, sum);
+      }
+      else
+      {
+        System.out.println("  original scan skipped");
+      }
+    }
+  }
+
+  /**
+   * The original getIncoming(): every adjacency list is searched
+   * for the vertex.
+   */
+  private static List<Integer> scanIncoming(MyGraph<String> graph, int index)
+  {
+    String v = graph.getKeyFromValue(index);
+    List<Integer> in = new ArrayList<Integer>();
+    for (Map.Entry<String, LinkedList<String>> entry : graph.getAdjList().entrySet())
+    {
+      if (entry.getValue().contains(v))
+      {
+        in.add(graph.getIndices().get(entry.getKey()));
+      }
+    }
+    return in;
+  }
+}
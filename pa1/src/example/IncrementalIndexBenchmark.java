@@ -0,0 +1,76 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import api.TaggedVertex;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Compares the time of a full index build with the time of updating a
+ * fraction of its pages in place, on synthetic pages served from a
+ * PageStore, and reports the number of segments left after merging.
+ * Usage: IncrementalIndexBenchmark [pages] [percent changed]
+ */
+public class IncrementalIndexBenchmark
+{
+  public static void main(String[] args)
+  {
+    int pages = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    double percent = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+
+    Random rand = new Random(13);
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = new ArrayList<TaggedVertex<String>>();
+    for (int p = 0; p < pages; p++)
+    {
+      String url = "http://example.org/page/" + p;
+      store.put(url, text(rand));
+      urls.add(new TaggedVertex<String>(url, 1 + rand.nextInt(10)));
+    }
+
+    Index index = new Index(urls, store);
+    long start = System.nanoTime();
+    index.makeIndex();
+    double full = (System.nanoTime() - start) / 1e6;
+    System.out.printf("full build of %d pages: %.1f ms%n", pages, full);
+
+    int changed = (int) (pages * percent / 100);
+    List<String> urlsChanged = new ArrayList<String>();
+    for (int i = 0; i < changed; i++)
+    {
+      String url = urls.get(rand.nextInt(pages)).getVertexData();
+      store.put(url, text(rand));
+      urlsChanged.add(url);
+    }
+    start = System.nanoTime();
+    for (String url : urlsChanged)
+    {
+      index.updateDocument(url);
+    }
+    double update = (System.nanoTime() - start) / 1e6;
+    start = System.nanoTime();
+    index.flush();
+    double merge = (System.nanoTime() - start) / 1e6;
+    System.out.printf("update of %d pages:  %.1f ms (%.1f%% of full build), flush %.1f ms, %d segments%n", changed,
+        update, 100 * update / full, merge, index.getSegmentCount());
+
+    index.searchWithOr("waa", "wab"); // warm up
+    start = System.nanoTime();
+    int hits = index.searchWithOr("waa", "wab").size();
+    System.out.printf("query: %d pages in %.2f ms%n", hits, (System.nanoTime() - start) / 1e6);
+  }
+
+  private static String text(Random rand)
+  {
+    StringBuilder text = new StringBuilder();
+    for (int w = 0; w < 300; w++)
+    {
+      int i = rand.nextInt(5000);
+      text.append('w').append((char) ('a' + i % 26)).append((char) ('a' + i / 26 % 26)).append(i / 676).append(' ');
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,134 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+import api.TaggedVertex;
+import api.Util;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Reports the heap used per posting by the inverted index on a synthetic
+ * corpus, for Index and for the original structure it replaced: a map
+ * from every term to a map from url to term frequency. Both are built
+ * from the same page texts, held in a PageStore so that nothing is
+ * downloaded, and heap use is measured after garbage collection.
+ * Usage: IndexMemoryBenchmark [documents] [words per document]
+ */
+public class IndexMemoryBenchmark
+{
+  // holds the structure being measured, so it stays reachable until dropped
+  private static Object measured;
+  private static PageStore store;
+
+  public static void main(String[] args) throws InterruptedException
+  {
+    int documents = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int words = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+    // a vocabulary with a skewed word distribution, as in real text
+    Random rand = new Random(17);
+    String[] vocabulary = new String[50000];
+    for (int i = 0; i < vocabulary.length; i++)
+    {
+      StringBuilder sb = new StringBuilder();
+      int length = 4 + rand.nextInt(6);
+      for (int k = 0; k < length; k++)
+      {
+        sb.append((char) ('a' + rand.nextInt(26)));
+      }
+      vocabulary[i] = sb.toString();
+    }
+    // a field, so that dropping the index does not free the store as well
+    store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = new ArrayList<TaggedVertex<String>>(documents);
+    for (int d = 0; d < documents; d++)
+    {
+      String url = "http://example.org/page/" + d;
+      StringBuilder sb = new StringBuilder();
+      for (int w = 0; w < words; w++)
+      {
+        double u = rand.nextDouble();
+        sb.append(vocabulary[(int) (u * u * u * vocabulary.length)]).append(' ');
+      }
+      store.put(url, sb.toString());
+      urls.add(new TaggedVertex<String>(url, 1 + rand.nextInt(10)));
+    }
+
+    // each structure is measured as the heap freed when it is dropped
+    Map<String, Map<String, Integer>> original = original(urls);
+    measured = original;
+    long postings = 0;
+    for (Map<String, Integer> list : original.values())
+    {
+      postings += list.size();
+    }
+    System.out.printf("%,d documents, %,d terms, %,d postings%n", documents, original.size(), postings);
+    long used = usedHeap();
+    measured = null;
+    report("url maps", used - usedHeap(), postings);
+
+    Index index = new Index(urls, store);
+    index.makeIndex();
+    long arrays = index.postingMemoryBytes();
+    measured = index;
+    used = usedHeap();
+    measured = null;
+    report("Index", used - usedHeap(), postings);
+    System.out.printf("%-9s %,14d bytes of posting arrays  %6.1f bytes per posting%n", "", arrays,
+        (double) arrays / postings);
+  }
+
+  /**
+   * Builds the original inverted index: each page is read with a Scanner,
+   * and each term maps to a map from url to the term's frequency.
+   */
+  private static Map<String, Map<String, Integer>> original(List<TaggedVertex<String>> urls)
+  {
+    Map<String, Map<String, Integer>> index = new HashMap<String, Map<String, Integer>>();
+    for (TaggedVertex<String> tv : urls)
+    {
+      String url = tv.getVertexData();
+      Scanner scanner = new Scanner(store.get(url));
+      while (scanner.hasNext())
+      {
+        String term = Util.stripPunctuation(scanner.next());
+        if (!Util.isStopWord(term))
+        {
+          Map<String, Integer> list = index.get(term);
+          if (list == null)
+          {
+            list = new HashMap<String, Integer>();
+            index.put(term, list);
+          }
+          Integer count = list.get(url);
+          list.put(url, count == null ? 1 : count + 1);
+        }
+      }
+      scanner.close();
+    }
+    return index;
+  }
+
+  private static long usedHeap() throws InterruptedException
+  {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+    {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void report(String name, long bytes, long postings)
+  {
+    System.out.printf("%-9s %,14d bytes of heap             %6.1f bytes per posting%n", name, bytes,
+        (double) bytes / postings);
+  }
+}
@@ -0,0 +1,102 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pa1.LinkFilter;
+import api.Util;
+
+/**
+ * Compares the time to check the links of a page with Util.ignoreLink
+ * and with a LinkFilter, on a synthetic page of wiki-style links, and
+ * checks that both give the same answers.
+ * Usage: LinkFilterBenchmark [links per page] [pages]
+ */
+public class LinkFilterBenchmark
+{
+  public static void main(String[] args)
+  {
+    int links = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int pages = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+    String page = "https://en.wikipedia.org/wiki/Gouraud_shading";
+    List<String> hrefs = new ArrayList<String>();
+    Random rand = new Random(42);
+    for (int i = 0; i < links; i++)
+    {
+      switch (rand.nextInt(6))
+      {
+        case 0:
+          hrefs.add(page + "#cite_note-" + i);
+          break;
+        case 1:
+          hrefs.add("https://en.wikipedia.org/wiki/Special:Search?id=" + i);
+          break;
+        case 2:
+          hrefs.add("https://www.example.org/articles/" + i + "?ref=wiki");
+          break;
+        case 3:
+          hrefs.add("mailto:editor" + i + "@example.org");
+          break;
+        default:
+          hrefs.add("https://en.wikipedia.org/wiki/Article_" + i);
+      }
+    }
+
+    for (String href : hrefs)
+    {
+      if (new LinkFilter(page).ignore(href) != Util.ignoreLink(page, href))
+      {
+        throw new IllegalStateException("Results differ for " + href);
+      }
+    }
+
+    // warm up both paths before timing
+    time(page, hrefs, pages, false);
+    time(page, hrefs, pages, true);
+
+    long util = time(page, hrefs, pages, false);
+    long filter = time(page, hrefs, pages, true);
+    double checks = (double) pages * links;
+    System.out.printf("Util.ignoreLink  %7.1f ns/link%n", util / checks);
+    System.out.printf("LinkFilter       %7.1f ns/link%n", filter / checks);
+    System.out.printf("speedup          %7.1fx%n", (double) util / filter);
+  }
+
+  private static long time(String page, List<String> hrefs, int pages, boolean useFilter)
+  {
+    int ignored = 0;
+    long start = System.nanoTime();
+    for (int p = 0; p < pages; p++)
+    {
+      if (useFilter)
+      {
+        LinkFilter filter = new LinkFilter(page);
+        for (String href : hrefs)
+        {
+          if (filter.ignore(href))
+          {
+            ignored++;
+          }
+        }
+      }
+      else
+      {
+        for (String href : hrefs)
+        {
+          if (Util.ignoreLink(page, href))
+          {
+            ignored++;
+          }
+        }
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    if (ignored < 0)
+    {
+      System.out.println(ignored);
+    }
+    return elapsed;
+  }
+}
@@ -0,0 +1,53 @@
+package example;
+
+import java.util.Random;
+
+import pa1.CompactGraph;
+import pa1.PageRank;
+
+/**
+ * Reports PageRank iterations per second on a synthetic graph with
+ * a skewed in-degree distribution, for 1 thread and for all cores.
+ * Usage: PageRankBenchmark [vertices] [edges]
+ */
+public class PageRankBenchmark
+{
+  public static void main(String[] args)
+  {
+    int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    int edges = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+    CompactGraph.Builder<String> builder = new CompactGraph.Builder<String>();
+    for (int i = 0; i < vertices; i++)
+    {
+      builder.addVertex("http://example.org/page/" + i);
+    }
+    Random rand = new Random(7);
+    for (int e = 0; e < edges; e++)
+    {
+      // squaring a uniform draw favors low-numbered vertices as targets
+      double u = rand.nextDouble();
+      int target = (int) (u * u * vertices);
+      int source = rand.nextInt(vertices);
+      builder.addEdge(source, target);
+    }
+    CompactGraph<String> graph = builder.build();
+    System.out.println(graph.size() + " vertices, " + graph.edgeCount() + " edges");
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int threads : cores > 1 ? new int[] { 1, cores } : new int[] { 1 })
+    {
+      PageRank pageRank = new PageRank();
+      pageRank.setThreads(threads);
+      pageRank.setTolerance(1e-12);
+      pageRank.setMaxIterations(50);
+      pageRank.compute(graph); // warm up
+
+      long start = System.nanoTime();
+      pageRank.compute(graph);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.printf("%2d threads: %d iterations in %.3f s, %.1f iterations/s%n", threads,
+          pageRank.getIterations(), seconds, pageRank.getIterations() / seconds);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import api.TaggedVertex;
+import pa1.HostRateLimiter;
+import pa1.Index;
+
+/**
+ * Reports the time of makeIndex() on a corpus served by a local HTTP
+ * server, for an increasing number of threads, and checks that every
+ * parallel index answers queries exactly as the serial one does. Pages
+ * are downloaded and parsed by makeIndex itself, so the work includes
+ * the HTTP round trips as well as tokenizing.
+ * Usage: ParallelIndexBenchmark [pages] [words per page]
+ */
+public class ParallelIndexBenchmark
+{
+  public static void main(String[] args) throws IOException
+  {
+    int pages = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+    final int words = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+    // without it, delayed ACKs add about 40 ms to every request
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring(1));
+        byte[] body = page(id, words).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        exchange.close();
+      }
+    });
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    server.setExecutor(pool);
+    server.start();
+    String base = "http://localhost:" + server.getAddress().getPort() + "/";
+
+    try
+    {
+      List<TaggedVertex<String>> urls = new ArrayList<TaggedVertex<String>>();
+      for (int i = 0; i < pages; i++)
+      {
+        urls.add(new TaggedVertex<String>(base + i, 1 + i % 7));
+      }
+      System.out.println(pages + " pages, " + Runtime.getRuntime().availableProcessors() + " cores");
+
+      // warm up the JVM and the server's connections
+      index(urls, 1);
+      String expected = null;
+      double serial = 0;
+      for (int threads : new int[] { 1, 2, 4, 8, 16 })
+      {
+        long start = System.nanoTime();
+        Index index = index(urls, threads);
+        double millis = (System.nanoTime() - start) / 1e6;
+        String answers = answers(index);
+        if (threads == 1)
+        {
+          expected = answers;
+          serial = millis;
+        }
+        System.out.printf("%2d threads: %8.1f ms, %5.2fx serial, %s%n", threads, millis, serial / millis,
+            answers.equals(expected) ? "same results" : "DIFFERENT RESULTS");
+      }
+    }
+    finally
+    {
+      server.stop(0);
+      pool.shutdown();
+    }
+  }
+
+  private static Index index(List<TaggedVertex<String>> urls, int threads)
+  {
+    Index index = new Index(urls);
+    index.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+    index.makeIndex(threads);
+    return index;
+  }
+
+  /**
+   * Returns the answers of the index to a fixed set of queries, in a form
+   * that can be compared between indexes.
+   */
+  private static String answers(Index index)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (String w : new String[] { "wa", "wb", "wz", "xq" })
+    {
+      for (TaggedVertex<String> tv : index.searchWithOr(w, "wc"))
+      {
+        sb.append(tv.getVertexData()).append('=').append(tv.getTagValue()).append(' ');
+      }
+      for (TaggedVertex<String> tv : index.searchWithAnd(w, "wd"))
+      {
+        sb.append(tv.getVertexData()).append('=').append(tv.getTagValue()).append(' ');
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String page(int id, int words)
+  {
+    Random rand = new Random(id);
+    StringBuilder sb = new StringBuilder("<html><body><p>Page ").append(id).append("</p><p>");
+    for (int i = 0; i < words; i++)
+    {
+      sb.append(rand.nextInt(4) == 0 ? 'x' : 'w').append((char) ('a' + rand.nextInt(26))).append(' ');
+    }
+    return sb.append("</p></body></html>").toString();
+  }
+}
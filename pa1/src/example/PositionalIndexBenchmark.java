@@ -0,0 +1,80 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import api.TaggedVertex;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Reports the posting memory of an index made with and without positions,
+ * and the time of a phrase query, on synthetic pages whose word
+ * frequencies follow a Zipf-like distribution. No pages are downloaded;
+ * the text is served from a PageStore.
+ * Usage: PositionalIndexBenchmark [pages] [words per page]
+ */
+public class PositionalIndexBenchmark
+{
+  public static void main(String[] args)
+  {
+    int pages = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+    int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+    String[] vocabulary = new String[20000];
+    for (int i = 0; i < vocabulary.length; i++)
+    {
+      vocabulary[i] = word(i);
+    }
+
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = new ArrayList<TaggedVertex<String>>();
+    Random rand = new Random(11);
+    for (int p = 0; p < pages; p++)
+    {
+      String url = "http://example.org/page/" + p;
+      StringBuilder text = new StringBuilder();
+      for (int w = 0; w < words; w++)
+      {
+        // 1 / rank frequencies: exp of a uniform draw over log(vocabulary size)
+        int rank = (int) Math.exp(rand.nextDouble() * Math.log(vocabulary.length)) - 1;
+        text.append(vocabulary[rank]).append(' ');
+      }
+      store.put(url, text.toString());
+      urls.add(new TaggedVertex<String>(url, 1 + rand.nextInt(10)));
+    }
+
+    Index plain = new Index(urls, store);
+    plain.makeIndex();
+    Index positional = new Index(urls, store);
+    positional.setPositional(true);
+    positional.makeIndex();
+
+    long tokens = (long) pages * words;
+    long plainBytes = plain.postingMemoryBytes();
+    long positionalBytes = positional.postingMemoryBytes();
+    System.out.println(pages + " pages, " + tokens + " words");
+    System.out.printf("plain postings       %,12d bytes  %5.2f bytes/word%n", plainBytes, (double) plainBytes / tokens);
+    System.out.printf("positional postings  %,12d bytes  %5.2f bytes/word%n", positionalBytes, (double) positionalBytes / tokens);
+    System.out.printf("overhead             %5.2fx%n", (double) positionalBytes / plainBytes);
+
+    String phrase = vocabulary[0] + " " + vocabulary[1];
+    positional.searchPhrase(phrase); // warm up
+    long start = System.nanoTime();
+    int hits = positional.searchPhrase(phrase).size();
+    System.out.printf("phrase \"%s\": %d pages in %.2f ms%n", phrase, hits, (System.nanoTime() - start) / 1e6);
+  }
+
+  private static String word(int i)
+  {
+    StringBuilder sb = new StringBuilder("w");
+    do
+    {
+      sb.append((char) ('a' + i % 26));
+      i /= 26;
+    }
+    while (i > 0);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,155 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import api.TaggedVertex;
+import api.Util;
+import pa1.Index;
+import pa1.PageStore;
+import pa1.RankComparator;
+
+/**
+ * Reports the latency of single-term searches for common and rare terms
+ * on a synthetic corpus, for Index and for the original search, which
+ * looked up the rank of every matching page by scanning the url list.
+ * The original search only runs a few queries of each kind, since a
+ * common term costs it a scan of the url list per matching page.
+ * Usage: QueryLatencyBenchmark [documents] [queries]
+ */
+public class QueryLatencyBenchmark
+{
+  public static void main(String[] args)
+  {
+    int documents = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int vocabulary = 100000;
+
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = SyntheticCorpus.fill(store, documents, 100, vocabulary, 23);
+    Index index = new Index(urls, store);
+    index.makeIndex();
+    Map<String, Map<String, Integer>> original = original(urls, store);
+
+    // common terms head the vocabulary; rare ones are picked from its tail
+    String[] common = new String[5];
+    String[] rare = new String[5];
+    for (int i = 0; i < 5; i++)
+    {
+      common[i] = SyntheticCorpus.term(i);
+    }
+    for (int i = vocabulary - 1, found = 0; found < 5; i--)
+    {
+      if (original.containsKey(SyntheticCorpus.term(i)))
+      {
+        rare[found++] = SyntheticCorpus.term(i);
+      }
+    }
+    System.out.printf("%,d documents; common terms on %,d pages, rare terms on %,d pages%n", documents,
+        original.get(common[0]).size(), original.get(rare[0]).size());
+
+    for (int round = 0; round < 3; round++)
+    {
+      run("common", index, common, queries);
+      run("rare", index, rare, queries);
+    }
+    original("common", original, urls, common);
+    original("rare", original, urls, rare);
+  }
+
+  private static void run(String name, Index index, String[] terms, int queries)
+  {
+    long start = System.nanoTime();
+    long hits = 0;
+    for (int q = 0; q < queries; q++)
+    {
+      hits += index.search(terms[q % terms.length]).size();
+    }
+    System.out.printf("Index    %-6s %9.3f ms/query  (%d hits)%n", name, (System.nanoTime() - start) / 1e6 / queries,
+        hits / queries);
+  }
+
+  private static void original(String name, Map<String, Map<String, Integer>> original,
+      List<TaggedVertex<String>> urls, String[] terms)
+  {
+    long start = System.nanoTime();
+    long hits = 0;
+    for (String w : terms)
+    {
+      hits += originalSearch(original, urls, w).size();
+    }
+    System.out.printf("original %-6s %9.3f ms/query  (%d hits)%n", name,
+        (System.nanoTime() - start) / 1e6 / terms.length, hits / terms.length);
+  }
+
+  /**
+   * Builds the original inverted index: each page is read with a Scanner,
+   * and each term maps to a map from url to the term's frequency.
+   */
+  private static Map<String, Map<String, Integer>> original(List<TaggedVertex<String>> urls, PageStore store)
+  {
+    Map<String, Map<String, Integer>> index = new HashMap<String, Map<String, Integer>>();
+    for (TaggedVertex<String> tv : urls)
+    {
+      String url = tv.getVertexData();
+      Scanner scanner = new Scanner(store.get(url));
+      while (scanner.hasNext())
+      {
+        String term = Util.stripPunctuation(scanner.next());
+        if (!Util.isStopWord(term))
+        {
+          Map<String, Integer> list = index.get(term);
+          if (list == null)
+          {
+            list = new HashMap<String, Integer>();
+            index.put(term, list);
+          }
+          Integer count = list.get(url);
+          list.put(url, count == null ? 1 : count + 1);
+        }
+      }
+      scanner.close();
+    }
+    return index;
+  }
+
+  /**
+   * The original search(): the rank of each matching page is found by
+   * scanning the url list for the page.
+   */
+  private static List<TaggedVertex<String>> originalSearch(Map<String, Map<String, Integer>> index,
+      List<TaggedVertex<String>> urls, String w)
+  {
+    List<TaggedVertex<String>> ranked = new ArrayList<TaggedVertex<String>>();
+    Map<String, Integer> list = index.get(w);
+    if (list == null)
+    {
+      return ranked;
+    }
+    for (Map.Entry<String, Integer> entry : list.entrySet())
+    {
+      int rank = entry.getValue() * rankFromUrls(urls, entry.getKey());
+      if (rank > 0)
+      {
+        ranked.add(new TaggedVertex<String>(entry.getKey(), rank));
+      }
+    }
+    ranked.sort(new RankComparator());
+    return ranked;
+  }
+
+  private static int rankFromUrls(List<TaggedVertex<String>> urls, String url)
+  {
+    for (int i = 0; i < urls.size(); i++)
+    {
+      if (urls.get(i).getVertexData().equals(url))
+      {
+        return urls.get(i).getTagValue();
+      }
+    }
+    return -1;
+  }
+}
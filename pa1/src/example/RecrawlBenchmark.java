@@ -0,0 +1,234 @@
+package example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import api.Graph;
+import api.TaggedVertex;
+import pa1.CrawlHistory;
+import pa1.Crawler;
+import pa1.HostRateLimiter;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Crawls and indexes a synthetic site served by a local HTTP server that
+ * answers If-None-Match with 304 Not Modified, saving the crawl history
+ * and the index to files, then changes some of its pages. The site is then
+ * brought up to date twice, starting from the files only: once by crawling
+ * with the saved history and updating the reopened index with the changed
+ * pages, removing the pages that left the graph and refreshing the ranks
+ * of the rest, and once by a full crawl and index rebuild, which must give
+ * the same search results. Reports the bytes served and the time of each,
+ * from the start of the crawl to the end of indexing, over several rounds
+ * so that later ones run on a warm JVM.
+ * Usage: RecrawlBenchmark [pages] [percent changed] [rounds]
+ */
+public class RecrawlBenchmark
+{
+  private static int[] version;
+  private static final AtomicLong bytesServed = new AtomicLong();
+
+  public static void main(String[] args) throws IOException
+  {
+    final int pages = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    double percent = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+    version = new int[pages];
+
+    // without it, delayed ACKs add about 40 ms to every request
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler()
+    {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        int id = Integer.parseInt(exchange.getRequestURI().getPath().substring(1));
+        String etag = "\"" + id + "-" + version[id] + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+        {
+          exchange.sendResponseHeaders(304, -1);
+          exchange.close();
+          return;
+        }
+        byte[] body = page(id, pages).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html");
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        exchange.close();
+        bytesServed.addAndGet(body.length);
+      }
+    });
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    server.setExecutor(pool);
+    server.start();
+    String seed = "http://localhost:" + server.getAddress().getPort() + "/0";
+
+    File dir = Files.createTempDirectory("recrawl").toFile();
+    File indexFile = new File(dir, "index.seg");
+    File historyFile = new File(dir, "history.crh");
+    try
+    {
+      CrawlHistory history = new CrawlHistory();
+      PageStore store = new PageStore(Long.MAX_VALUE);
+      Crawler crawler = crawler(seed, pages, history, store);
+      bytesServed.set(0);
+      long start = System.nanoTime();
+      Graph<String> web = crawler.crawl();
+      Index index = index(web, store);
+      report("first run", start, 0);
+      index.save(indexFile);
+      history.save(historyFile);
+
+      Random rand = new Random(3);
+      for (int i = 0; i < pages * percent / 100; i++)
+      {
+        version[rand.nextInt(pages)]++;
+      }
+
+      // each run below starts from files only, as a later process would
+      for (int round = 0; round < rounds; round++)
+      {
+        store = new PageStore(Long.MAX_VALUE);
+        crawler = crawler(seed, pages, CrawlHistory.load(historyFile), store);
+        bytesServed.set(0);
+        start = System.nanoTime();
+        web = crawler.crawl();
+        long crawled = System.nanoTime();
+        List<String> changed = crawler.getChangedUrls();
+        List<TaggedVertex<String>> ranked = web.vertexDataWithIncomingCounts();
+        Map<String, Integer> ranks = new HashMap<String, Integer>();
+        for (TaggedVertex<String> v : ranked)
+        {
+          ranks.put(v.getVertexData(), v.getTagValue());
+        }
+        index = Index.open(indexFile, store);
+        index.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+        for (String url : crawler.getRemovedUrls())
+        {
+          index.removeDocument(url);
+        }
+        for (String url : changed)
+        {
+          index.updateDocument(url, ranks.get(url));
+        }
+        // in-link counts of unchanged pages may have changed too
+        index.updateRanks(ranked);
+        index.flush();
+        report("re-crawl and update", start, crawled);
+        System.out.printf("  %d pages changed, %d removed, %d unchanged, %,d bytes not downloaded, %.1f ms of parsing saved%n",
+            changed.size(), crawler.getRemovedUrls().size(), crawler.getPagesUnchanged(), crawler.getBytesSaved(),
+            crawler.getParseNanosSaved() / 1e6);
+
+        store = new PageStore(Long.MAX_VALUE);
+        crawler = crawler(seed, pages, null, store);
+        bytesServed.set(0);
+        start = System.nanoTime();
+        web = crawler.crawl();
+        crawled = System.nanoTime();
+        Index rebuilt = index(web, store);
+        report("full crawl and rebuild", start, crawled);
+        if (!results(index).equals(results(rebuilt)))
+        {
+          throw new IllegalStateException("the updated index differs from the rebuilt one");
+        }
+      }
+    }
+    finally
+    {
+      server.stop(0);
+      pool.shutdown();
+      indexFile.delete();
+      historyFile.delete();
+      dir.delete();
+    }
+  }
+
+  private static Crawler crawler(String seed, int pages, CrawlHistory history, PageStore store)
+  {
+    Crawler crawler = new Crawler(seed, Integer.MAX_VALUE, pages, 4);
+    crawler.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+    crawler.setHistory(history);
+    crawler.setPageStore(store);
+    return crawler;
+  }
+
+  private static Index index(Graph<String> web, PageStore store)
+  {
+    Index index = new Index(web.vertexDataWithIncomingCounts(), store);
+    index.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+    index.makeIndex();
+    return index;
+  }
+
+  /**
+   * Returns the pages found by a search for every word of the site's
+   * pages, with their ranks. Pages of equal rank may come in a different
+   * order from two indexes, so each search gives a map from url to rank.
+   */
+  private static List<Map<String, Integer>> results(Index index)
+  {
+    List<Map<String, Integer>> results = new ArrayList<Map<String, Integer>>();
+    for (char a = 'a'; a <= 'z'; a++)
+    {
+      for (char b = 'a'; b <= 'z'; b++)
+      {
+        Map<String, Integer> found = new HashMap<String, Integer>();
+        for (TaggedVertex<String> tv : index.search("w" + a + b))
+        {
+          found.put(tv.getVertexData(), tv.getTagValue());
+        }
+        results.add(found);
+      }
+    }
+    return results;
+  }
+
+  private static void report(String name, long start, long crawled)
+  {
+    long end = System.nanoTime();
+    if (crawled == 0)
+    {
+      System.out.printf("%s: %,d bytes served, %.1f ms%n", name, bytesServed.get(), (end - start) / 1e6);
+    }
+    else
+    {
+      System.out.printf("%s: %,d bytes served, %.1f ms (crawl %.1f ms, index %.1f ms)%n", name, bytesServed.get(),
+          (end - start) / 1e6, (crawled - start) / 1e6, (end - crawled) / 1e6);
+    }
+  }
+
+  private static String page(int id, int pages)
+  {
+    Random rand = new Random(id * 31L + version[id]);
+    StringBuilder sb = new StringBuilder("<html><body><h1>Page ").append(id).append("</h1>");
+    for (int i = 0; i < 200; i++)
+    {
+      sb.append(" w").append((char) ('a' + rand.nextInt(26))).append((char) ('a' + rand.nextInt(26)));
+      if (i % 20 == 0)
+      {
+        sb.append(" <a href='/").append(rand.nextInt(pages)).append("'>link</a>");
+      }
+    }
+    return sb.append("</body></html>").toString();
+  }
+}
@@ -0,0 +1,80 @@
+package example;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import api.TaggedVertex;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Reports how long it takes to get a searchable index back after a
+ * restart: opening a segment written by Index.save and answering the
+ * first query, against building the index again with makeIndex from the
+ * page texts in a PageStore. The corpus is synthetic and has several
+ * million postings. The segment file is read through the page cache, as
+ * it would be after a restart without a reboot.
+ * Usage: SegmentOpenBenchmark [documents] [rounds]
+ */
+public class SegmentOpenBenchmark
+{
+  public static void main(String[] args) throws IOException
+  {
+    int documents = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = SyntheticCorpus.fill(store, documents, 100, 100000, 37);
+    long postings = 0;
+    for (TaggedVertex<String> tv : urls)
+    {
+      Set<String> terms = new HashSet<String>();
+      for (String term : store.get(tv.getVertexData()).split(" "))
+      {
+        terms.add(term);
+      }
+      postings += terms.size();
+    }
+
+    File file = File.createTempFile("segment", ".idx");
+    file.deleteOnExit();
+    Index built = new Index(urls, store);
+    built.makeIndex();
+    built.save(file);
+    System.out.printf("%,d documents, %,d postings, segment of %,d bytes%n", documents, postings, file.length());
+
+    // a common term, so that the first query reads a long posting list
+    String w = SyntheticCorpus.term(0);
+    int expected = built.search(w).size();
+    built = null;
+
+    for (int round = 0; round < rounds; round++)
+    {
+      long start = System.nanoTime();
+      Index index = new Index(urls, store);
+      index.makeIndex();
+      long indexed = System.nanoTime();
+      int hits = index.search(w).size();
+      report("makeIndex", start, indexed, System.nanoTime(), hits, expected);
+
+      start = System.nanoTime();
+      index = Index.open(file, store);
+      long opened = System.nanoTime();
+      hits = index.search(w).size();
+      report("open", start, opened, System.nanoTime(), hits, expected);
+    }
+  }
+
+  private static void report(String name, long start, long ready, long answered, int hits, int expected)
+  {
+    if (hits != expected)
+    {
+      throw new IllegalStateException(name + " found " + hits + " pages instead of " + expected);
+    }
+    System.out.printf("%-9s %10.1f ms to load  %8.1f ms to first answer  (%d hits)%n", name, (ready - start) / 1e6,
+        (answered - ready) / 1e6, hits);
+  }
+}
@@ -0,0 +1,66 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import api.TaggedVertex;
+import pa1.PageStore;
+
+/**
+ * Page texts for the index benchmarks, put straight into a PageStore so
+ * that indexing downloads nothing. Words are drawn from a vocabulary with
+ * a skewed distribution, as in real text: term(0) is the most common word
+ * and the last terms of the vocabulary are rare.
+ */
+class SyntheticCorpus
+{
+  private SyntheticCorpus()
+  {
+  }
+
+  /**
+   * Returns the i-th word of the vocabulary. Words are made of letters
+   * only, so the tokenizer keeps them whole, and none is a stop word.
+   */
+  static String term(int i)
+  {
+    StringBuilder sb = new StringBuilder("q");
+    do
+    {
+      sb.append((char) ('a' + i % 26));
+      i /= 26;
+    } while (i > 0);
+    return sb.toString();
+  }
+
+  /**
+   * Fills the store with the given number of pages of the given number
+   * of words, drawn from a vocabulary of the given size, and returns the
+   * urls of the pages with random ranks from 1 to 10.
+   */
+  static List<TaggedVertex<String>> fill(PageStore store, int documents, int words, int vocabulary, long seed)
+  {
+    Random rand = new Random(seed);
+    List<TaggedVertex<String>> urls = new ArrayList<TaggedVertex<String>>(documents);
+    String[] terms = new String[vocabulary];
+    for (int i = 0; i < vocabulary; i++)
+    {
+      terms[i] = term(i);
+    }
+    for (int d = 0; d < documents; d++)
+    {
+      String url = "http://example.org/page/" + d;
+      StringBuilder sb = new StringBuilder();
+      for (int w = 0; w < words; w++)
+      {
+        // cubing a uniform draw favors the first words of the vocabulary
+        double u = rand.nextDouble();
+        sb.append(terms[(int) (u * u * u * vocabulary)]).append(' ');
+      }
+      store.put(url, sb.toString());
+      urls.add(new TaggedVertex<String>(url, 1 + rand.nextInt(10)));
+    }
+    return urls;
+  }
+}
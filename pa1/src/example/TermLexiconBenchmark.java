@@ -0,0 +1,115 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pa1.TermLexicon;
+
+/**
+ * Reports the memory of a TermLexicon over random terms and the time of
+ * prefix and fuzzy lookups, compared with scanning every term.
+ * Usage: TermLexiconBenchmark [terms] [queries]
+ */
+public class TermLexiconBenchmark
+{
+  public static void main(String[] args)
+  {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    Random rand = new Random(5);
+    List<String> terms = new ArrayList<String>(count);
+    long chars = 0;
+    for (int i = 0; i < count; i++)
+    {
+      String term = word(rand, 3 + rand.nextInt(8));
+      terms.add(term);
+      chars += term.length();
+    }
+    TermLexicon lexicon = new TermLexicon(terms);
+    System.out.printf("%d terms, %,d characters, lexicon %,d bytes%n", lexicon.size(), chars, lexicon.memoryBytes());
+
+    String[] words = new String[queries];
+    for (int q = 0; q < queries; q++)
+    {
+      // misspell a known term so fuzzy queries have matches
+      char[] w = terms.get(rand.nextInt(count)).toCharArray();
+      w[rand.nextInt(w.length)] = (char) ('a' + rand.nextInt(26));
+      words[q] = new String(w);
+    }
+
+    long start = System.nanoTime();
+    long found = 0;
+    for (String w : words)
+    {
+      found += lexicon.prefix(w.substring(0, 3), Integer.MAX_VALUE).size();
+    }
+    report("prefix", found, System.nanoTime() - start, queries);
+
+    for (int edits = 1; edits <= 2; edits++)
+    {
+      start = System.nanoTime();
+      found = 0;
+      for (String w : words)
+      {
+        found += lexicon.fuzzy(w, edits).size();
+      }
+      report("fuzzy d=" + edits, found, System.nanoTime() - start, queries);
+
+      // the scan is slow, so it only runs a tenth of the queries
+      int scanned = Math.max(1, queries / 10);
+      start = System.nanoTime();
+      found = 0;
+      for (int q = 0; q < scanned; q++)
+      {
+        for (int i = 0; i < lexicon.size(); i++)
+        {
+          if (distance(lexicon.term(i), words[q]) <= edits)
+          {
+            found++;
+          }
+        }
+      }
+      report("scan  d=" + edits, found, System.nanoTime() - start, scanned);
+    }
+  }
+
+  private static void report(String name, long found, long nanos, int queries)
+  {
+    System.out.printf("%-10s %8d terms found  %9.3f ms/query%n", name, found, nanos / 1e6 / queries);
+  }
+
+  private static String word(Random rand, int length)
+  {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++)
+    {
+      sb.append((char) ('a' + rand.nextInt(26)));
+    }
+    return sb.toString();
+  }
+
+  private static int distance(String s, String t)
+  {
+    int[] prev = new int[t.length() + 1];
+    int[] row = new int[t.length() + 1];
+    for (int j = 0; j <= t.length(); j++)
+    {
+      prev[j] = j;
+    }
+    for (int i = 1; i <= s.length(); i++)
+    {
+      row[0] = i;
+      for (int j = 1; j <= t.length(); j++)
+      {
+        int cost = s.charAt(i - 1) == t.charAt(j - 1) ? 0 : 1;
+        row[j] = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+      }
+      int[] swap = prev;
+      prev = row;
+      row = swap;
+    }
+    return prev[t.length()];
+  }
+}
@@ -0,0 +1,69 @@
+package example;
+
+import java.util.Random;
+import java.util.Scanner;
+
+import api.Util;
+import pa1.Tokenizer;
+
+/**
+ * Reports the throughput of splitting page text into terms with Tokenizer,
+ * compared with the original parsing that read the text with a Scanner and
+ * passed every token through Util.stripPunctuation. The text mixes plain
+ * words with punctuation, apostrophes, digits and non-ASCII letters.
+ * Usage: TokenizerBenchmark [megabytes of text] [rounds]
+ */
+public class TokenizerBenchmark
+{
+  private static final String[] WORDS = { "the", "index", "Search", "engine", "don't", "page's", "3rd", "2019",
+      "caf\u00e9", "na\u00efve", "U.S.A.", "--", "(graph)", "\"quoted\"", "e-mail", "x", "QUERY!", "rank,", "end." };
+
+  public static void main(String[] args)
+  {
+    int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    Random rand = new Random(9);
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < megabytes * 1000000)
+    {
+      sb.append(WORDS[rand.nextInt(WORDS.length)]).append(rand.nextInt(10) == 0 ? "\n" : " ");
+    }
+    String text = sb.toString();
+    System.out.printf("%,d characters%n", text.length());
+
+    for (int round = 0; round < rounds; round++)
+    {
+      long start = System.nanoTime();
+      long terms = 0;
+      long chars = 0;
+      Scanner scanner = new Scanner(text);
+      while (scanner.hasNext())
+      {
+        chars += Util.stripPunctuation(scanner.next()).length();
+        terms++;
+      }
+      scanner.close();
+      report("scanner", terms, chars, text.length(), System.nanoTime() - start);
+
+      start = System.nanoTime();
+      final long[] counts = new long[2];
+      new Tokenizer().tokenize(text, new Tokenizer.TermSink()
+      {
+        @Override
+        public void term(char[] buffer, int length)
+        {
+          counts[0]++;
+          counts[1] += length;
+        }
+      });
+      report("tokenizer", counts[0], counts[1], text.length(), System.nanoTime() - start);
+    }
+  }
+
+  private static void report(String name, long terms, long chars, int length, long nanos)
+  {
+    System.out.printf("%-10s %,11d terms %,12d term chars  %8.1f MB/s  %8.2f M terms/s%n", name, terms, chars,
+        length / (nanos / 1e9) / 1e6, terms / (nanos / 1e9) / 1e6);
+  }
+}
@@ -0,0 +1,64 @@
+package example;
+
+import java.util.List;
+
+import api.TaggedVertex;
+import pa1.Index;
+import pa1.PageStore;
+
+/**
+ * Reports the latency of search(w, 10), which keeps only the ten best
+ * pages, against search(w), which ranks and sorts every matching page,
+ * for a term on about 100,000 pages of a synthetic corpus.
+ * Usage: TopKBenchmark [documents] [queries]
+ */
+public class TopKBenchmark
+{
+  public static void main(String[] args)
+  {
+    int documents = args.length > 0 ? Integer.parseInt(args[0]) : 120000;
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+    PageStore store = new PageStore(Long.MAX_VALUE);
+    List<TaggedVertex<String>> urls = SyntheticCorpus.fill(store, documents, 100, 100000, 31);
+    Index index = new Index(urls, store);
+    index.makeIndex();
+
+    String w = SyntheticCorpus.term(0);
+    List<TaggedVertex<String>> all = index.search(w);
+    List<TaggedVertex<String>> top = index.search(w, 10);
+    // equal ranks may be ordered differently, so only the ranks are compared
+    for (int i = 0; i < 10; i++)
+    {
+      if (all.get(i).getTagValue() != top.get(i).getTagValue())
+      {
+        throw new IllegalStateException("search(w, 10) differs from search(w) at " + i);
+      }
+    }
+    System.out.printf("%,d documents; %s on %,d pages%n", documents, w, all.size());
+
+    for (int round = 0; round < 3; round++)
+    {
+      long start = System.nanoTime();
+      long hits = 0;
+      for (int q = 0; q < queries; q++)
+      {
+        hits += index.search(w).size();
+      }
+      report("search(w)", start, queries, hits);
+      start = System.nanoTime();
+      hits = 0;
+      for (int q = 0; q < queries; q++)
+      {
+        hits += index.search(w, 10).size();
+      }
+      report("search(w, 10)", start, queries, hits);
+    }
+  }
+
+  private static void report(String name, long start, int queries, long hits)
+  {
+    System.out.printf("%-14s %8.3f ms/query  (%d results)%n", name, (System.nanoTime() - start) / 1e6 / queries,
+        hits / queries);
+  }
+}
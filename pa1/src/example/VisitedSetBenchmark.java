@@ -0,0 +1,75 @@
+package example;
+
+import java.util.HashSet;
+
+import pa1.BloomFilter;
+import pa1.FingerprintSet;
+import pa1.VisitedSet;
+
+/**
+ * Reports the memory per url of the visited-set implementations, and
+ * the false-positive rate observed for the probabilistic one, on
+ * synthetic urls.
+ * Usage: VisitedSetBenchmark [number of urls]
+ */
+public class VisitedSetBenchmark
+{
+  private static final double RATE = 0.01;
+
+  public static void main(String[] args)
+  {
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    System.out.println("Adding " + n + " urls");
+
+    run("fingerprint table", new FingerprintSet(), n);
+    run("fingerprint table with bloom front", new FingerprintSet(new BloomFilter(n, RATE)), n);
+    run("bloom filter, rate " + RATE + ", sized for n", new BloomFilter(n, RATE), n);
+    run("bloom filter, rate " + RATE + ", sized for n/16", new BloomFilter(n / 16 + 1, RATE), n);
+
+    long before = usedMemory();
+    HashSet<String> strings = new HashSet<String>();
+    for (int i = 0; i < n; i++)
+    {
+      strings.add(url(i));
+    }
+    long after = usedMemory();
+    System.out.printf("%-45s %6.1f bytes/url (heap delta)%n", "HashSet<String>",
+        (double) (after - before) / strings.size());
+  }
+
+  private static void run(String name, VisitedSet set, int n)
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < n; i++)
+    {
+      set.add(url(i));
+    }
+    long elapsed = System.nanoTime() - start;
+
+    int falsePositives = 0;
+    for (int i = n; i < 2 * n; i++)
+    {
+      if (set.contains(url(i)))
+      {
+        falsePositives++;
+      }
+    }
+    System.out.printf("%-45s %6.1f bytes/url  %5.0f ns/add  false positives %.4f%n", name,
+        (double) set.memoryBytes() / n, (double) elapsed / n, (double) falsePositives / n);
+  }
+
+  private static String url(int i)
+  {
+    return "https://en.wikipedia.org/wiki/Article_" + Integer.toHexString(i * 0x9e3779b1) + "_" + i;
+  }
+
+  private static long usedMemory()
+  {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+    {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
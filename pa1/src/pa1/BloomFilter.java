@@ -0,0 +1,146 @@
+package pa1;
+
+import java.util.ArrayList;
+
+/**
+ * Probabilistic visited set backed by a scalable Bloom filter. A url that
+ * was added is always reported as present; a url that was not is reported
+ * as present with probability at most the false-positive rate given at
+ * construction, however many urls are added.
+ * <p>
+ * The filter is a chain of slices. Each slice is a plain Bloom filter sized
+ * for a number of urls; when the newest slice is full a slice twice as
+ * large is started, with half the false-positive rate of the previous one.
+ * The first slice gets half the overall rate, so the rates of all slices
+ * sum to less than the overall rate. At the rates used for crawling a
+ * slice needs about 1.44 * log2(1 / rate) bits per url, for example 1.2
+ * bytes at a rate of 1%.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class BloomFilter implements VisitedSet {
+	private final ArrayList<Slice> slices = new ArrayList<Slice>();
+	private long size = 0;
+
+	/**
+	 * Constructs an empty filter.
+	 * @param expectedUrls number of urls the first slice is sized for
+	 * @param falsePositiveRate worst-case probability that an absent url
+	 *        is reported as present, between 0 and 1
+	 */
+	public BloomFilter(long expectedUrls, double falsePositiveRate) {
+		if(expectedUrls < 1) {
+			throw new IllegalArgumentException("expectedUrls must be at least 1");
+		}
+		if(!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		slices.add(new Slice(expectedUrls, falsePositiveRate / 2));
+	}
+
+	@Override
+	public boolean add(String url) {
+		return put(FingerprintSet.fingerprint(url));
+	}
+
+	@Override
+	public boolean contains(String url) {
+		return mightContain(FingerprintSet.fingerprint(url));
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public long memoryBytes() {
+		long bytes = 0;
+		for(Slice slice : slices) {
+			bytes += 8L * slice.bits.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns true if a url with the given fingerprint may have been added.
+	 * @param fp
+	 * @return false only if the fingerprint was definitely never added
+	 */
+	boolean mightContain(long fp) {
+		for(int i = slices.size() - 1; i >= 0; i--) {
+			if(slices.get(i).mightContain(fp)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a fingerprint unless the filter may already contain it.
+	 * @param fp
+	 * @return true if the fingerprint was definitely not present before
+	 */
+	boolean put(long fp) {
+		if(mightContain(fp)) {
+			return false;
+		}
+		Slice last = slices.get(slices.size() - 1);
+		if(last.count >= last.capacity) {
+			last = new Slice(last.capacity * 2, last.rate / 2);
+			slices.add(last);
+		}
+		last.put(fp);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Fixed-size Bloom filter. The k bit positions of a fingerprint are
+	 * derived from its two 32-bit halves by double hashing.
+	 */
+	private static class Slice {
+		final long[] bits;
+		final long numBits;
+		final int hashes;
+		final long capacity;
+		final double rate;
+		long count = 0;
+
+		Slice(long capacity, double rate) {
+			double ln2 = Math.log(2);
+			long m = (long) Math.ceil(-capacity * Math.log(rate) / (ln2 * ln2));
+			m = Math.max(64, (m + 63) / 64 * 64);
+			if(m / 64 > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Bloom filter slice too large: " + m + " bits");
+			}
+			this.bits = new long[(int) (m / 64)];
+			this.numBits = m;
+			this.hashes = Math.max(1, (int) Math.ceil(-Math.log(rate) / ln2));
+			this.capacity = capacity;
+			this.rate = rate;
+		}
+
+		boolean mightContain(long fp) {
+			long h1 = fp & 0xffffffffL;
+			long h2 = fp >>> 32;
+			for(int i = 0; i < hashes; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+				if((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void put(long fp) {
+			long h1 = fp & 0xffffffffL;
+			long h2 = fp >>> 32;
+			for(int i = 0; i < hashes; i++) {
+				long bit = ((h1 + i * h2) & Long.MAX_VALUE) % numBits;
+				bits[(int) (bit >>> 6)] |= 1L << bit;
+			}
+			count++;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package pa1;
+
+/**
+ * Read-only posting list that chains the posting lists of one term from
+ * consecutive index segments, whose doc ids increase from each list to
+ * the next, without copying them. Sequential access costs the same as
+ * on a single list, since the part of the last lookup is remembered.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class ChainedPostings implements Postings {
+	private final Postings[] parts;
+	// position in the chain of the first posting of each part, then size()
+	private final int[] starts;
+	private int part = 0;
+
+	/**
+	 * Constructs a chain of the given non-empty lists.
+	 * @param parts
+	 */
+	ChainedPostings(Postings[] parts) {
+		this.parts = parts;
+		this.starts = new int[parts.length + 1];
+		for(int p = 0; p < parts.length; p++) {
+			starts[p + 1] = starts[p] + parts[p].size();
+		}
+	}
+
+	/**
+	 * Returns the part holding the i-th posting of the chain.
+	 * @param i
+	 * @return index of the part
+	 */
+	private int locate(int i) {
+		if(i >= starts[part] && i < starts[part + 1]) {
+			return part;
+		}
+		int lo = 0;
+		int hi = parts.length - 1;
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(starts[mid] <= i) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+		part = lo;
+		return lo;
+	}
+
+	@Override
+	public int size() {
+		return starts[parts.length];
+	}
+
+	@Override
+	public int doc(int i) {
+		int p = locate(i);
+		return parts[p].doc(i - starts[p]);
+	}
+
+	@Override
+	public int freq(int i) {
+		int p = locate(i);
+		return parts[p].freq(i - starts[p]);
+	}
+
+	@Override
+	public boolean hasPositions() {
+		for(Postings list : parts) {
+			if(!list.hasPositions()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int positions(int i, int[] out) {
+		int p = locate(i);
+		return parts[p].positions(i - starts[p], out);
+	}
+
+	@Override
+	public int advance(int from, int target) {
+		if(from >= size()) {
+			return from;
+		}
+		// skip whole parts whose last doc id is below the target
+		for(int p = locate(from); p < parts.length; p++) {
+			Postings list = parts[p];
+			if(list.doc(list.size() - 1) >= target) {
+				part = p;
+				return starts[p] + list.advance(Math.max(0, from - starts[p]), target);
+			}
+		}
+		return size();
+	}
+}
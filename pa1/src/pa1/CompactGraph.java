@@ -0,0 +1,259 @@
+package pa1;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import api.Graph;
+import api.TaggedVertex;
+
+/**
+ * Immutable, int-indexed graph stored in compressed sparse row (CSR) form.
+ * The out-edges of vertex i are targets[offsets[i]] up to
+ * targets[offsets[i + 1]], and the in-edges are mirrored the same way,
+ * so neighbor lookups are array slices instead of map traversals.
+ * Instances are produced by {@link MyGraph#freeze()} or a {@link Builder}.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class CompactGraph<E> implements Graph<E> {
+	private final E[] vertices;
+	private final int[] outOffsets;
+	private final int[] outTargets;
+	private final int[] inOffsets;
+	private final int[] inSources;
+	private final int seed;
+
+	/**
+	 * Constructs a graph from out-edge arrays in CSR form. The in-edge
+	 * arrays are derived from them with a counting sort, so the incoming
+	 * list of every vertex is ordered by source index.
+	 * @param vertices
+	 * @param outOffsets
+	 * @param outTargets
+	 * @param seed index of the seed vertex, or -1 if there is none
+	 */
+	CompactGraph(E[] vertices, int[] outOffsets, int[] outTargets, int seed) {
+		int n = vertices.length;
+		this.vertices = vertices;
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.seed = seed;
+
+		int[] offsets = new int[n + 1];
+		for(int i = 0; i < outOffsets[n]; i++) {
+			offsets[outTargets[i] + 1]++;
+		}
+		for(int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] sources = new int[outOffsets[n]];
+		int[] next = Arrays.copyOf(offsets, n);
+		for(int v = 0; v < n; v++) {
+			for(int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+				sources[next[outTargets[i]]++] = v;
+			}
+		}
+		this.inOffsets = offsets;
+		this.inSources = sources;
+	}
+
+	/**
+	 * Returns the number of vertices in this graph.
+	 * @return number of vertices
+	 */
+	public int size() {
+		return vertices.length;
+	}
+
+	/**
+	 * Returns the number of edges in this graph.
+	 * @return number of edges
+	 */
+	public int edgeCount() {
+		return outTargets.length;
+	}
+
+	/**
+	 * Returns the data for the vertex with the given index.
+	 * @param index
+	 * @return vertex data
+	 */
+	public E getVertex(int index) {
+		return vertices[index];
+	}
+
+	/**
+	 * Returns the number of outgoing edges of the given vertex.
+	 * @param index
+	 * @return out-degree of vertex
+	 */
+	public int outDegree(int index) {
+		return outOffsets[index + 1] - outOffsets[index];
+	}
+
+	/**
+	 * Returns the k-th neighbor of the given vertex without
+	 * allocating a list.
+	 * @param index
+	 * @param k
+	 * @return index of the k-th neighbor
+	 */
+	public int neighbor(int index, int k) {
+		return outTargets[outOffsets[index] + k];
+	}
+
+	/**
+	 * Returns the number of incoming edges of the given vertex.
+	 * @param index
+	 * @return in-degree of vertex
+	 */
+	public int inDegree(int index) {
+		return inOffsets[index + 1] - inOffsets[index];
+	}
+
+	/**
+	 * Returns the k-th source of an incoming edge of the given
+	 * vertex without allocating a list.
+	 * @param index
+	 * @param k
+	 * @return index of the k-th incoming vertex
+	 */
+	public int incoming(int index, int k) {
+		return inSources[inOffsets[index] + k];
+	}
+
+	@Override
+	public ArrayList<E> vertexData() {
+		return new ArrayList<E>(Arrays.asList(vertices));
+	}
+
+	@Override
+	public ArrayList<TaggedVertex<E>> vertexDataWithIncomingCounts() {
+		ArrayList<TaggedVertex<E>> taggedArr = new ArrayList<TaggedVertex<E>>(vertices.length);
+		for(int i = 0; i < vertices.length; i++) {
+			int count = inDegree(i);
+			if(i == seed) {
+				count++;
+			}
+			taggedArr.add(new TaggedVertex<E>(vertices[i], count));
+		}
+		return taggedArr;
+	}
+
+	/**
+	 * Returns a read-only view of the outgoing edges of the given vertex.
+	 * The view is backed by the edge array, so no edges are copied.
+	 */
+	@Override
+	public List<Integer> getNeighbors(int index) {
+		if(index < 0 || index >= vertices.length) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return new Slice(outTargets, outOffsets[index], outOffsets[index + 1]);
+	}
+
+	/**
+	 * Returns a read-only view of the incoming edges of the given vertex.
+	 * The view is backed by the edge array, so no edges are copied.
+	 */
+	@Override
+	public List<Integer> getIncoming(int index) {
+		if(index < 0 || index >= vertices.length) {
+			throw new ArrayIndexOutOfBoundsException(index);
+		}
+		return new Slice(inSources, inOffsets[index], inOffsets[index + 1]);
+	}
+
+	/**
+	 * Read-only list view over a range of an int array.
+	 */
+	private static class Slice extends AbstractList<Integer> {
+		private final int[] array;
+		private final int from;
+		private final int to;
+
+		Slice(int[] array, int from, int to) {
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Integer get(int i) {
+			if(i < 0 || i >= to - from) {
+				throw new IndexOutOfBoundsException("Index: " + i);
+			}
+			return array[from + i];
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+
+	/**
+	 * Accumulates vertices and edges by index and produces
+	 * a CompactGraph. The first vertex added is treated as the seed.
+	 */
+	public static class Builder<E> {
+		private ArrayList<E> vertices = new ArrayList<E>();
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private int edges = 0;
+
+		/**
+		 * Adds a vertex and returns its index.
+		 * @param vertex
+		 * @return index of the new vertex
+		 */
+		public int addVertex(E vertex) {
+			vertices.add(vertex);
+			return vertices.size() - 1;
+		}
+
+		/**
+		 * Adds an edge between the vertices with the given indices.
+		 * Edges of a vertex keep the order in which they were added.
+		 * @param source
+		 * @param destination
+		 */
+		public void addEdge(int source, int destination) {
+			if(source < 0 || source >= vertices.size() || destination < 0 || destination >= vertices.size()) {
+				throw new ArrayIndexOutOfBoundsException("Edge " + source + " -> " + destination);
+			}
+			if(edges == sources.length) {
+				sources = Arrays.copyOf(sources, edges * 2);
+				targets = Arrays.copyOf(targets, edges * 2);
+			}
+			sources[edges] = source;
+			targets[edges] = destination;
+			edges++;
+		}
+
+		/**
+		 * Builds the graph.
+		 * @return compact graph with the vertices and edges added so far
+		 */
+		@SuppressWarnings("unchecked")
+		public CompactGraph<E> build() {
+			int n = vertices.size();
+			int[] offsets = new int[n + 1];
+			for(int i = 0; i < edges; i++) {
+				offsets[sources[i] + 1]++;
+			}
+			for(int i = 0; i < n; i++) {
+				offsets[i + 1] += offsets[i];
+			}
+			int[] out = new int[edges];
+			int[] next = Arrays.copyOf(offsets, n);
+			for(int i = 0; i < edges; i++) {
+				out[next[sources[i]]++] = targets[i];
+			}
+			E[] data = (E[]) vertices.toArray();
+			return new CompactGraph<E>(data, offsets, out, n > 0 ? 0 : -1);
+		}
+	}
+}
@@ -0,0 +1,277 @@
+package pa1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * Append-only log of a crawl's progress, from which an interrupted crawl can
+ * be resumed. The log starts with the crawl settings and then holds one
+ * record per processed page, in the order pages leave the frontier, listing
+ * the vertices (with their depths) and edges that page added to the graph.
+ * Because the crawl is a BFS, the frontier is exactly the vertices that
+ * have not been processed yet, so the graph, the visited set and the
+ * frontier can all be rebuilt by replaying the records.
+ * <p>
+ * Each record is length-prefixed, so a record cut short by an interruption
+ * is detected and dropped on replay; its page is simply crawled again.
+ * Records are buffered and flushed every few pages, so checkpointing never
+ * pauses the crawl for more than a sequential write.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class CrawlCheckpoint implements Closeable {
+	private static final int MAGIC = 0x43525731; // "CRW1"
+
+	private final DataOutputStream out;
+	private final int flushInterval;
+	private int pagesSinceFlush = 0;
+	private ByteArrayOutputStream pageBytes = new ByteArrayOutputStream();
+	private DataOutputStream page = new DataOutputStream(pageBytes);
+	private ArrayList<String> newVertices = new ArrayList<String>();
+	private ArrayList<Integer> newDepths = new ArrayList<Integer>();
+	private ArrayList<Integer> newEdges = new ArrayList<Integer>();
+
+	/**
+	 * Constructs a log that appends to the given stream.
+	 * @param out
+	 * @param flushInterval number of pages between flushes
+	 */
+	private CrawlCheckpoint(DataOutputStream out, int flushInterval) {
+		this.out = out;
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Creates a new log in the given file, replacing any existing file,
+	 * and writes the crawl settings to it.
+	 * @param file
+	 * @param seedUrl
+	 * @param maxDepth
+	 * @param maxPages
+	 * @param flushInterval number of pages between flushes
+	 * @return log ready for page records
+	 * @throws IOException
+	 */
+	static CrawlCheckpoint create(File file, String seedUrl, int maxDepth, int maxPages, int flushInterval) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeUTF(seedUrl);
+		out.writeInt(maxDepth);
+		out.writeInt(maxPages);
+		out.flush();
+		return new CrawlCheckpoint(out, flushInterval);
+	}
+
+	/**
+	 * Records that the page being processed added a new vertex.
+	 * @param url
+	 * @param depth
+	 */
+	void vertex(String url, int depth) {
+		newVertices.add(url);
+		newDepths.add(depth);
+	}
+
+	/**
+	 * Records that the page being processed added an edge
+	 * to the vertex with the given index.
+	 * @param destination
+	 */
+	void edge(int destination) {
+		newEdges.add(destination);
+	}
+
+	/**
+	 * Appends the record of the page being processed, with the
+	 * vertices and edges reported since the previous record.
+	 * @throws IOException
+	 */
+	void endPage() throws IOException {
+		pageBytes.reset();
+		page.writeInt(newVertices.size());
+		for(int i = 0; i < newVertices.size(); i++) {
+			page.writeUTF(newVertices.get(i));
+			page.writeInt(newDepths.get(i));
+		}
+		page.writeInt(newEdges.size());
+		for(int destination : newEdges) {
+			page.writeInt(destination);
+		}
+		page.flush();
+		newVertices.clear();
+		newDepths.clear();
+		newEdges.clear();
+
+		out.writeInt(pageBytes.size());
+		pageBytes.writeTo(out);
+		if(++pagesSinceFlush >= flushInterval) {
+			out.flush();
+			pagesSinceFlush = 0;
+		}
+	}
+
+	/**
+	 * Records that the crawl is complete, so that resuming
+	 * from this log does no further work.
+	 * @throws IOException
+	 */
+	void finish() throws IOException {
+		out.writeInt(0);
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * State of a crawl rebuilt from a log.
+	 */
+	static class Replay {
+		final MyGraph<String> web;
+		final Queue<FrontierEntry> queue = new LinkedList<FrontierEntry>();
+		final boolean finished;
+		final CrawlCheckpoint log;
+
+		Replay(MyGraph<String> web, boolean finished, CrawlCheckpoint log) {
+			this.web = web;
+			this.finished = finished;
+			this.log = log;
+		}
+	}
+
+	/**
+	 * Replays the log in the given file, checking that it was written for a
+	 * crawl with the given settings. Any incomplete record at the end of the
+	 * file is discarded and the log is reopened for appending after the last
+	 * complete one.
+	 * @param file
+	 * @param seedUrl
+	 * @param maxDepth
+	 * @param maxPages
+	 * @param flushInterval number of pages between flushes
+	 * @return the rebuilt graph and frontier, and the reopened log
+	 * @throws IOException if the file cannot be read or is not a log
+	 *         for these settings
+	 */
+	static Replay replay(File file, String seedUrl, int maxDepth, int maxPages, int flushInterval) throws IOException {
+		MyGraph<String> web;
+		ArrayList<Integer> depths = new ArrayList<Integer>();
+		int processed = 0;
+		boolean finished = false;
+		long validLength;
+
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if(in.readInt() != MAGIC) {
+				throw new IOException("Not a crawl checkpoint file: " + file);
+			}
+			String seed = in.readUTF();
+			if(!seed.equals(seedUrl) || in.readInt() != maxDepth || in.readInt() != maxPages) {
+				throw new IOException("Checkpoint " + file + " was written for a crawl with different settings");
+			}
+			validLength = 4 + 2 + utfLength(seed) + 8;
+
+			ArrayList<String> urls = new ArrayList<String>();
+			urls.add(seedUrl);
+			web = new MyGraph<String>(urls);
+			depths.add(0);
+
+			while(true) {
+				byte[] record;
+				try {
+					int length = in.readInt();
+					if(length == 0) {
+						finished = true;
+						validLength += 4;
+						break;
+					}
+					record = new byte[length];
+					in.readFully(record);
+				} catch (EOFException e) {
+					break;
+				}
+				apply(record, web, depths, processed);
+				processed++;
+				validLength += 4 + record.length;
+			}
+		}
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(validLength);
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		Replay replay = new Replay(web, finished, new CrawlCheckpoint(out, flushInterval));
+		ArrayList<String> vertices = web.vertexData();
+		for(int i = processed; i < vertices.size(); i++) {
+			replay.queue.add(new FrontierEntry(vertices.get(i), depths.get(i)));
+		}
+		return replay;
+	}
+
+	/**
+	 * Applies one page record to the graph being rebuilt.
+	 * @param record
+	 * @param web
+	 * @param depths depth of every vertex, extended with the new ones
+	 * @param page index of the vertex whose page the record describes
+	 * @throws IOException if the record is malformed
+	 */
+	private static void apply(byte[] record, MyGraph<String> web, ArrayList<Integer> depths, int page) throws IOException {
+		if(page >= web.getIndices().size()) {
+			throw new IOException("Checkpoint record for a page that is not in the graph");
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		int vertices = in.readInt();
+		for(int i = 0; i < vertices; i++) {
+			web.addVertex(in.readUTF());
+			depths.add(in.readInt());
+		}
+		String source = web.getKeyFromValue(page);
+		int edges = in.readInt();
+		for(int i = 0; i < edges; i++) {
+			String destination = web.getKeyFromValue(in.readInt());
+			if(destination == null) {
+				throw new IOException("Checkpoint record with an edge to a vertex that is not in the graph");
+			}
+			web.addEdge(source, destination);
+		}
+	}
+
+	/**
+	 * Returns the length of the modified UTF-8 encoding
+	 * written by writeUTF for the given string.
+	 * @param s
+	 * @return encoded length in bytes, without the length prefix
+	 */
+	private static int utfLength(String s) {
+		int length = 0;
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c >= 0x0001 && c <= 0x007f) {
+				length++;
+			}
+			else if(c <= 0x07ff) {
+				length += 2;
+			}
+			else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+}
@@ -0,0 +1,236 @@
+package pa1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a crawl learned about each page it downloaded, kept so that the next
+ * crawl of the same site can skip the work for pages that did not change.
+ * For every url it records the validators the server sent (the ETag and
+ * Last-Modified headers), a 64-bit hash of the page's bytes, its size, the
+ * time taken to parse it and the links found on it.
+ * <p>
+ * A crawler given a history sends the validators back as If-None-Match and
+ * If-Modified-Since. A 304 Not Modified answer means the page is neither
+ * downloaded nor parsed; a full answer whose hash matches the stored one
+ * is downloaded but not parsed. Either way the stored links are used.
+ * <p>
+ * The history also keeps the vertices of the graph the last crawl built,
+ * so that the next crawl can tell which urls are new to the graph and
+ * which dropped out of it.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class CrawlHistory {
+	private static final int MAGIC = 0x43524832; // "CRH2"
+	// histories written before the graph's vertices were kept
+	private static final int MAGIC_1 = 0x43524831; // "CRH1"
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private List<String> vertices = new ArrayList<String>();
+
+	/**
+	 * Constructs an empty history.
+	 */
+	public CrawlHistory() {
+	}
+
+	/**
+	 * Reads a history written by {@link #save(File)}.
+	 * @param file
+	 * @return history read from the file, or an empty history if the
+	 *         file does not exist
+	 * @throws IOException if the file cannot be read or is not a history
+	 */
+	public static CrawlHistory load(File file) throws IOException {
+		CrawlHistory history = new CrawlHistory();
+		if(!file.exists()) {
+			return history;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			int magic = in.readInt();
+			if(magic != MAGIC && magic != MAGIC_1) {
+				throw new IOException("Not a crawl history: " + file);
+			}
+			int n = in.readInt();
+			for(int i = 0; i < n; i++) {
+				String url = in.readUTF();
+				String etag = readOptional(in);
+				String lastModified = readOptional(in);
+				long hash = in.readLong();
+				int bytes = in.readInt();
+				long parseNanos = in.readLong();
+				int linkCount = in.readInt();
+				List<String> links = new ArrayList<String>(linkCount);
+				for(int k = 0; k < linkCount; k++) {
+					links.add(in.readUTF());
+				}
+				history.entries.put(url, new Entry(etag, lastModified, hash, bytes, parseNanos, links));
+			}
+			if(magic == MAGIC) {
+				int vertexCount = in.readInt();
+				for(int i = 0; i < vertexCount; i++) {
+					history.vertices.add(in.readUTF());
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return history;
+	}
+
+	/**
+	 * Writes this history to the given file. The file is replaced in
+	 * one step, so a crash while saving leaves the previous history.
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void save(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(entries.size());
+			for(Map.Entry<String, Entry> e : entries.entrySet()) {
+				Entry entry = e.getValue();
+				out.writeUTF(e.getKey());
+				writeOptional(out, entry.etag);
+				writeOptional(out, entry.lastModified);
+				out.writeLong(entry.hash);
+				out.writeInt(entry.bytes);
+				out.writeLong(entry.parseNanos);
+				out.writeInt(entry.links.size());
+				for(String link : entry.links) {
+					out.writeUTF(link);
+				}
+			}
+			out.writeInt(vertices.size());
+			for(String v : vertices) {
+				out.writeUTF(v);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Returns the number of pages in this history.
+	 * @return number of pages
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns what is known about the page at the given url.
+	 * @param url
+	 * @return entry of the page, or null if it has not been downloaded
+	 */
+	synchronized Entry get(String url) {
+		return entries.get(url);
+	}
+
+	/**
+	 * Records what was learned about the page at the given url,
+	 * replacing the previous entry.
+	 * @param url
+	 * @param entry
+	 */
+	synchronized void put(String url, Entry entry) {
+		entries.put(url, entry);
+	}
+
+	/**
+	 * Returns the vertices of the graph built by the last crawl that
+	 * finished with this history, in index order.
+	 * @return urls of the vertices, empty if no crawl has finished
+	 */
+	synchronized List<String> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Records the vertices of the graph built by a finished crawl,
+	 * replacing those of the previous one.
+	 * @param vertices urls of the vertices, in index order
+	 */
+	synchronized void setVertices(List<String> vertices) {
+		this.vertices = new ArrayList<String>(vertices);
+	}
+
+	/**
+	 * Returns a well-mixed 64-bit hash of the given bytes: 64-bit FNV-1a
+	 * followed by the MurmurHash3 finalizer, as in FingerprintSet.
+	 * @param bytes
+	 * @return hash of the bytes
+	 */
+	static long hash(byte[] bytes) {
+		long h = 0xcbf29ce484222325L;
+		for(int i = 0; i < bytes.length; i++) {
+			h ^= bytes[i] & 0xff;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static String readOptional(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeOptional(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if(s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	/**
+	 * What is known about one page. Entries are not changed once made.
+	 */
+	static class Entry {
+		final String etag;
+		final String lastModified;
+		final long hash;
+		final int bytes;
+		final long parseNanos;
+		final List<String> links;
+
+		/**
+		 * Constructs an entry.
+		 * @param etag ETag header of the page, or null
+		 * @param lastModified Last-Modified header of the page, or null
+		 * @param hash hash of the page's bytes
+		 * @param bytes size of the page
+		 * @param parseNanos time taken to parse the page and extract its links and text
+		 * @param links absolute urls of the links on the page, in order
+		 */
+		Entry(String etag, String lastModified, long hash, int bytes, long parseNanos, List<String> links) {
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.bytes = bytes;
+			this.parseNanos = parseNanos;
+			this.links = Collections.unmodifiableList(links);
+		}
+	}
+}
@@ -1,21 +1,31 @@
 package pa1;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.jsoup.Connection;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 import api.Graph;
-import api.Util;
 
 /**
  * Implementation of a basic web crawler that creates a graph of some portion of
@@ -27,138 +37,625 @@ public class Crawler {
 	private String seedUrl;
 	private int maxDepth;
 	private int maxPages;
+	private int fetchThreads;
+	private HostRateLimiter rateLimiter = new HostRateLimiter(50, 3000);
+	private PageStore pageStore;
+	private File checkpointFile;
+	private int checkpointInterval = 50;
+	private CrawlCheckpoint log;
+	private UrlCanonicalizer canonicalizer;
+	private VisitedSet rawLinks;
+	private long duplicatesCollapsed;
+	private long fetchesSaved;
+	private CrawlHistory history;
+	private long pagesUnchanged;
+	private long bytesSaved;
+	private long parseNanosSaved;
+	private ArrayList<String> changedUrls = new ArrayList<String>();
+	private ArrayList<String> removedUrls = new ArrayList<String>();
+	private BitSet unchanged;
 
 	/**
 	 * Constructs a Crawler that will start with the given seed url, including only
 	 * up to maxPages pages at distance up to maxDepth from the seed url.
-	 * 
+	 *
 	 * @param seedUrl
 	 * @param maxDepth
 	 * @param maxPages
 	 */
 	public Crawler(String seedUrl, int maxDepth, int maxPages) {
+		this(seedUrl, maxDepth, maxPages, 1);
+	}
+
+	/**
+	 * Constructs a Crawler like {@link #Crawler(String, int, int)} that fetches
+	 * up to fetchThreads pages at a time. With more than one thread the next
+	 * pages of the frontier are downloaded concurrently, but the resulting graph
+	 * is the same as that of a serial crawl.
+	 *
+	 * @param seedUrl
+	 * @param maxDepth
+	 * @param maxPages
+	 * @param fetchThreads
+	 */
+	public Crawler(String seedUrl, int maxDepth, int maxPages, int fetchThreads) {
+		if(fetchThreads < 1) {
+			throw new IllegalArgumentException("fetchThreads must be at least 1");
+		}
 		this.seedUrl = seedUrl;
 		this.maxDepth = maxDepth;
 		this.maxPages = maxPages;
+		this.fetchThreads = fetchThreads;
 	}
 
 	/**
-	 * Returns the depth of the given node within the given web graph using BFS.
-	 * @param web
-	 * @param node
-	 * @return the depth of the given node in the given graph.
+	 * Sets the per-host limiter that all page fetches go through.
+	 * The default allows 50 requests per host every 3 seconds.
+	 * @param rateLimiter
 	 */
-	private int getDepth(MyGraph<String> web, int node) {
-		int root = web.getIndices().get(seedUrl);
-		if(node == root) {
-			return 0;
-		}
-		int level[] = new int[web.getAdjList().size()];
-		boolean marked[] = new boolean[web.getAdjList().size()];
+	public void setRateLimiter(HostRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
 
-		Queue<Integer> que = new LinkedList<Integer>();
-		que.add(root);
+	/**
+	 * Sets a store that receives the body text of every page this crawler
+	 * downloads, so that an Index built from the crawl can reuse it.
+	 * @param pageStore store to fill, or null to keep no page text
+	 */
+	public void setPageStore(PageStore pageStore) {
+		this.pageStore = pageStore;
+	}
 
-		level[root] = 0;
-		marked[root] = true;
+	/**
+	 * Sets a canonicalizer that rewrites every url into its normal form
+	 * before it becomes a vertex, so that spellings of the same page such
+	 * as "http://Example.com:80/a/" and "http://example.com/a#top" are
+	 * crawled once. By default urls are used exactly as they are written.
+	 * @param canonicalizer canonicalizer to use, or null for none
+	 */
+	public void setCanonicalizer(UrlCanonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+	}
 
-		while (que.size() > 0) {
-			root = que.peek();
-			que.remove();
+	/**
+	 * Returns the number of distinct link urls that the most recent crawl
+	 * mapped onto a vertex already in the graph because of canonicalization,
+	 * that is, the number of duplicate vertices it avoided.
+	 * @return number of duplicate vertices avoided
+	 */
+	public long getDuplicatesCollapsed() {
+		return duplicatesCollapsed;
+	}
 
-			for (int i = 0; i < web.getNeighbors(root).size(); i++) {
-				int n = web.getNeighbors(root).get(i);
+	/**
+	 * Returns the number of the duplicates counted by
+	 * {@link #getDuplicatesCollapsed()} that were within maxDepth of the
+	 * seed, and so would otherwise have been fetched unless the crawl hit
+	 * maxPages first.
+	 * @return number of page fetches avoided, at most
+	 */
+	public long getFetchesSaved() {
+		return fetchesSaved;
+	}
 
-				if (!marked[n]) {
-					que.add(n);
-					level[n] = level[root] + 1;
-					marked[n] = true;
+	/**
+	 * Sets the history of earlier crawls used to re-crawl pages
+	 * conditionally, see {@link CrawlHistory}. Every page this crawler
+	 * downloads is recorded in it; save it after the crawl to use it
+	 * in the next run. The text of pages that did not change is not
+	 * parsed, so it does not reach the page store: rather than building
+	 * a new Index, open the one saved after the previous crawl with
+	 * {@link Index#open(File, PageStore)}, remove the pages of
+	 * {@link #getRemovedUrls()}, update those of {@link #getChangedUrls()}
+	 * and then set every rank with {@link Index#updateRanks(List)}.
+	 * @param history history to use and fill, or null to fetch every page in full
+	 */
+	public void setHistory(CrawlHistory history) {
+		this.history = history;
+	}
 
-					if (n == node) {
-						return level[n];
-					}
-				}
-			}
-		}
+	/**
+	 * Returns the number of pages in the most recent crawl that the history
+	 * showed to be unchanged, either because the server answered 304 Not
+	 * Modified or because their content hash matched.
+	 * @return number of unchanged pages
+	 */
+	public long getPagesUnchanged() {
+		return pagesUnchanged;
+	}
+
+	/**
+	 * Returns the number of page bytes the most recent crawl did not
+	 * download because the server answered 304 Not Modified.
+	 * @return bytes not downloaded
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	/**
+	 * Returns the time the most recent crawl did not spend parsing
+	 * unchanged pages, as measured when they were last parsed.
+	 * @return parse time saved in nanoseconds
+	 */
+	public long getParseNanosSaved() {
+		return parseNanosSaved;
+	}
+
+	/**
+	 * Returns the urls whose pages an index of the previous crawl has to
+	 * index again after the most recent crawl: the pages it parsed because
+	 * they were new or had changed, in crawl order, followed by the other
+	 * vertices of the graph that it did not find unchanged since the
+	 * previous crawl, such as those beyond maxDepth, which are not
+	 * downloaded. With a history, only these pages need to be passed to
+	 * {@link Index#updateDocument(String, int)} to bring an index of the
+	 * previous crawl, reopened from its file, up to date; the pages the
+	 * crawl did not download are downloaded by the index.
+	 * @return urls of new or changed pages
+	 */
+	public List<String> getChangedUrls() {
+		return changedUrls;
+	}
+
+	/**
+	 * Returns the urls that were in the graph of the previous crawl
+	 * recorded in the history but are not in the graph of the most recent
+	 * one, because the links to them were removed or the crawl reached
+	 * maxPages before them. Pass them to {@link Index#removeDocument(String)}.
+	 * @return urls no longer in the graph, empty without a history
+	 */
+	public List<String> getRemovedUrls() {
+		return removedUrls;
+	}
 
-		return -1;
+	/**
+	 * Makes crawl() record its progress in the given file, so that an
+	 * interrupted crawl can be continued with {@link #resume(File)}.
+	 * The file is flushed every 50 pages.
+	 * @param file checkpoint file, or null to keep no checkpoint
+	 */
+	public void setCheckpoint(File file) {
+		setCheckpoint(file, 50);
+	}
+
+	/**
+	 * Like {@link #setCheckpoint(File)}, flushing the file every
+	 * flushInterval pages. A crash loses at most the pages since
+	 * the last flush, which are crawled again on resume.
+	 * @param file checkpoint file, or null to keep no checkpoint
+	 * @param flushInterval
+	 */
+	public void setCheckpoint(File file, int flushInterval) {
+		if(flushInterval < 1) {
+			throw new IllegalArgumentException("flushInterval must be at least 1");
+		}
+		this.checkpointFile = file;
+		this.checkpointInterval = flushInterval;
 	}
 
 	/**
 	 * Creates a web graph for the portion of the web obtained by a BFS of the web
 	 * starting with the seed url for this object, subject to the restrictions
 	 * implied by maxDepth and maxPages.
-	 * 
+	 *
 	 * @return an instance of Graph representing this portion of the web
 	 */
 	public Graph<String> crawl() {
-		int requests = 0;
-		int depth = -1;
-		int index = 1;
-
+		String seed = seed();
 		ArrayList<String> urls = new ArrayList<String>();
-		urls.add(seedUrl);
+		urls.add(seed);
 		MyGraph<String> web = new MyGraph<String>(urls);
 
-		Queue<String> queue = new LinkedList<String>();
-		queue.add(seedUrl);
+		Queue<FrontierEntry> queue = new LinkedList<FrontierEntry>();
+		queue.add(new FrontierEntry(seed, 0));
+
+		if (checkpointFile != null) {
+			try {
+				log = CrawlCheckpoint.create(checkpointFile, seed, maxDepth, maxPages, checkpointInterval);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		run(web, queue);
+		return web;
+	}
+
+	/**
+	 * Continues a crawl that was checkpointed with {@link #setCheckpoint(File)}
+	 * and interrupted, rebuilding the graph and frontier from the checkpoint
+	 * instead of fetching the pages again. Progress keeps being appended to
+	 * the same file. The result is the graph crawl() would have produced,
+	 * provided the pages have not changed in the meantime.
+	 *
+	 * @param checkpoint file written by an earlier crawl with the same
+	 *        seed url, maxDepth and maxPages as this crawler
+	 * @return an instance of Graph representing this portion of the web
+	 * @throws IOException if the checkpoint cannot be read or was written
+	 *         for different settings
+	 */
+	public Graph<String> resume(File checkpoint) throws IOException {
+		CrawlCheckpoint.Replay replay = CrawlCheckpoint.replay(checkpoint, seed(), maxDepth, maxPages, checkpointInterval);
+		if (replay.finished) {
+			replay.log.close();
+			return replay.web;
+		}
+		log = replay.log;
+		run(replay.web, replay.queue);
+		return replay.web;
+	}
+
+	/**
+	 * Returns the seed url in the form used as the first vertex.
+	 * @return seed url, canonicalized if a canonicalizer is set
+	 */
+	private String seed() {
+		if (canonicalizer != null) {
+			String seed = canonicalizer.canonicalize(seedUrl);
+			if (seed != null) {
+				return seed;
+			}
+		}
+		return seedUrl;
+	}
+
+	/**
+	 * Runs the BFS from the given frontier, then marks the checkpoint,
+	 * if any, as finished unless the crawl was interrupted.
+	 * @param web
+	 * @param queue
+	 */
+	private void run(MyGraph<String> web, Queue<FrontierEntry> queue) {
+		duplicatesCollapsed = 0;
+		fetchesSaved = 0;
+		pagesUnchanged = 0;
+		bytesSaved = 0;
+		parseNanosSaved = 0;
+		changedUrls = new ArrayList<String>();
+		removedUrls = new ArrayList<String>();
+		unchanged = new BitSet();
+		if (canonicalizer != null) {
+			rawLinks = new FingerprintSet();
+			rawLinks.add(seedUrl);
+			for (String v : web.vertexView()) {
+				rawLinks.add(v);
+			}
+		}
+		try {
+			if (fetchThreads > 1) {
+				crawlConcurrent(web, queue);
+			} else {
+				crawlSerial(web, queue);
+			}
+			if (history != null && !Thread.currentThread().isInterrupted()) {
+				compareWithHistory(web);
+			}
+			if (log != null && !Thread.currentThread().isInterrupted()) {
+				log.finish();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (log != null) {
+				try {
+					log.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				log = null;
+			}
+			rawLinks = null;
+			unchanged = null;
+		}
+	}
+
+	/**
+	 * Compares the graph of a finished crawl with the graph of the previous
+	 * crawl in the history, then records it in the history for the next
+	 * crawl. Every vertex whose page was not found unchanged and in the
+	 * previous graph is added to the changed urls, even if its page was not
+	 * parsed: an index of the previous crawl does not hold a url new to the
+	 * graph, and holds an old version of a page this crawl did not download.
+	 * Urls that left the graph become the removed urls.
+	 * @param web
+	 */
+	private void compareWithHistory(MyGraph<String> web) {
+		HashSet<String> previous = new HashSet<String>(history.getVertices());
+		HashSet<String> changed = new HashSet<String>(changedUrls);
+		List<String> vertices = web.vertexView();
+		for (int i = 0; i < vertices.size(); i++) {
+			String v = vertices.get(i);
+			if (!(unchanged.get(i) && previous.contains(v)) && changed.add(v)) {
+				changedUrls.add(v);
+			}
+		}
+		for (String v : history.getVertices()) {
+			if (!web.getIndices().containsKey(v)) {
+				removedUrls.add(v);
+			}
+		}
+		history.setVertices(vertices);
+	}
 
+	/**
+	 * Continues the crawl one page at a time.
+	 * @param web
+	 * @param queue
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	private void crawlSerial(MyGraph<String> web, Queue<FrontierEntry> queue) throws IOException {
 		while (!queue.isEmpty()) {
-			String url = queue.remove();
-			int listIdx = web.getIndex(url);
-			depth = getDepth(web, listIdx);
-			if (depth == -1) {
-				System.out.println("Error: The URL, " + url + " does not appear to be a node in your web graph...");
-				return web;
+			FrontierEntry entry = queue.remove();
+			if (entry.getDepth() > maxDepth || web.getAdjList().size() >= maxPages) {
+				return;
 			}
-			if (depth > maxDepth) {
-				return web;
+
+			Page page = fetch(entry.getUrl());
+			if (!visit(web, queue, entry, page)) {
+				return;
 			}
+		}
+	}
 
-			Document urlDoc = null;
-			try {
-				if (requests == 50) {
-					try {
-						Thread.sleep(3000);
-						requests = 0;
-					} catch (InterruptedException ignore) {
-						ignore.printStackTrace();
-					}
+	/**
+	 * Continues the crawl with up to fetchThreads pages downloading at a
+	 * time. Pages are fetched ahead of the page being visited, in frontier
+	 * order, and visited in that same order, so vertex indices, maxDepth
+	 * and maxPages behave exactly as in the serial crawl. No more pages are
+	 * fetched once the graph reaches maxPages, but those already on their
+	 * way are still downloaded, so the crawl may make up to fetchThreads - 1
+	 * more requests than a serial one.
+	 * @param web
+	 * @param queue
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	private void crawlConcurrent(MyGraph<String> web, Queue<FrontierEntry> queue) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(fetchThreads);
+		Queue<FrontierEntry> ahead = new LinkedList<FrontierEntry>();
+		Queue<Future<Page>> pages = new LinkedList<Future<Page>>();
+		try {
+			while (true) {
+				while (pages.size() < fetchThreads && !queue.isEmpty() && queue.peek().getDepth() <= maxDepth
+						&& web.getAdjList().size() < maxPages) {
+					final FrontierEntry entry = queue.remove();
+					ahead.add(entry);
+					pages.add(pool.submit(new Callable<Page>() {
+						@Override
+						public Page call() {
+							return fetch(entry.getUrl());
+						}
+					}));
 				}
-				urlDoc = Jsoup.connect(url).get();
-				requests++;
-			} catch (UnsupportedMimeTypeException e) {
-				System.out.println("--unsupported document type, do nothing");
-			} catch (HttpStatusException e) {
-				System.out.println("--invalid link, do nothing");
-			} catch (IOException e) {
-				e.printStackTrace();
+				if (pages.isEmpty()) {
+					return;
+				}
+
+				Page page = pages.remove().get();
+				if (!visit(web, queue, ahead.remove(), page)) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			finish(pool);
+		}
+	}
+
+	/**
+	 * Shuts down the given pool once the fetches in flight are done, or at
+	 * once if the crawl was interrupted. The fetches are not interrupted,
+	 * since jsoup ends a download that is interrupted as if the page were
+	 * complete, and the truncated page would be stored and recorded in the
+	 * history.
+	 * @param pool
+	 */
+	private static void finish(ExecutorService pool) {
+		pool.shutdown();
+		try {
+			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting for slow servers
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Downloads the page at the given url, waiting on the rate limiter
+	 * for its host first, and extracts its links. With a history, the
+	 * request is conditional, and a page that has not changed since the
+	 * last crawl is not parsed; its links are taken from the history.
+	 * @param url
+	 * @return the links of the page, or null if it could not be fetched
+	 */
+	private Page fetch(String url) {
+		try {
+			rateLimiter.acquire(url);
+			CrawlHistory.Entry old = history == null ? null : history.get(url);
+			Connection connection = Jsoup.connect(url).ignoreHttpErrors(true);
+			if (old != null && old.etag != null) {
+				connection.header("If-None-Match", old.etag);
+			}
+			if (old != null && old.lastModified != null) {
+				connection.header("If-Modified-Since", old.lastModified);
+			}
+			Connection.Response response = connection.execute();
+			int status = response.statusCode();
+			if (status == 304 && old != null) {
+				return new Page(old.links, false, old.bytes, old.parseNanos);
+			}
+			if (status < 200 || status >= 400) {
+				throw new HttpStatusException("HTTP error fetching URL", status, url);
 			}
 
-			Elements links = urlDoc.select("a[href]");
-			for (Element link : links) {
-				if (web.getAdjList().size() >= maxPages) {
-					return web;
+			long hash = 0;
+			int bytes = 0;
+			if (history != null) {
+				byte[] body = response.bodyAsBytes();
+				hash = CrawlHistory.hash(body);
+				bytes = body.length;
+				if (old != null && old.hash == hash) {
+					// same content under new validators
+					history.put(url, new CrawlHistory.Entry(response.header("ETag"), response.header("Last-Modified"), hash, bytes, old.parseNanos, old.links));
+					return new Page(old.links, false, 0, old.parseNanos);
 				}
-				
-				String v = link.attr("abs:href");
-				if (!Util.ignoreLink(url, v)) {
-					if (!(web.getAdjList().containsKey(v))) {
-						queue.add(v);
-						web.getAdjList().put(v, new LinkedList<>());
-						web.getIndices().put(v, index);
-						web.addEdge(url, v);
-						index++;
-					} else {
-						web.addEdge(url, v);
+			}
+
+			long start = System.nanoTime();
+			Document doc = response.parse();
+			List<String> links = new ArrayList<String>();
+			for (Element link : doc.select("a[href]")) {
+				links.add(link.attr("abs:href"));
+			}
+			if (pageStore != null) {
+				pageStore.put(url, doc.body().text());
+			}
+			if (history != null) {
+				history.put(url, new CrawlHistory.Entry(response.header("ETag"), response.header("Last-Modified"), hash, bytes, System.nanoTime() - start, links));
+			}
+			return new Page(links, true, 0, 0);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (UnsupportedMimeTypeException e) {
+			System.out.println("--unsupported document type, do nothing");
+		} catch (HttpStatusException e) {
+			System.out.println("--invalid link, do nothing");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Processes the page of a frontier entry that has been removed from the
+	 * queue, adding its links to the graph and recording them in the
+	 * checkpoint, if any. Nothing is recorded if the crawl was interrupted
+	 * while fetching the page, so that a resumed crawl fetches it again.
+	 * @param web
+	 * @param queue
+	 * @param entry
+	 * @param page the fetched page, or null if it could not be fetched
+	 * @return false if the crawl should stop
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	private boolean visit(MyGraph<String> web, Queue<FrontierEntry> queue, FrontierEntry entry, Page page) throws IOException {
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+		if (page != null) {
+			if (page.changed) {
+				changedUrls.add(entry.getUrl());
+			} else {
+				unchanged.set(web.getIndex(entry.getUrl()));
+				pagesUnchanged++;
+				bytesSaved += page.bytesSaved;
+				parseNanosSaved += page.parseNanosSaved;
+			}
+		}
+		boolean more = page == null || addLinks(web, queue, entry, page.links);
+		if (log != null) {
+			log.endPage();
+		}
+		return more;
+	}
+
+	/**
+	 * Adds the links found on the page of the given frontier entry to the
+	 * graph, queueing the urls that have not been seen before.
+	 * @param web
+	 * @param queue
+	 * @param entry
+	 * @param links absolute urls of the links on the page
+	 * @return false if the graph reached maxPages and the crawl should stop
+	 */
+	private boolean addLinks(MyGraph<String> web, Queue<FrontierEntry> queue, FrontierEntry entry, List<String> links) {
+		String url = entry.getUrl();
+		UrlCanonicalizer.Parsed page = canonicalizer != null ? canonicalizer.parse(url) : null;
+		LinkFilter filter = canonicalizer == null ? new LinkFilter(url) : null;
+		for (String link : links) {
+			if (web.getAdjList().size() >= maxPages) {
+				return false;
+			}
+
+			String v = link;
+			if (canonicalizer != null) {
+				v = canonicalLink(web, page, v, entry.getDepth() + 1);
+			} else if (filter.ignore(v)) {
+				v = null;
+			}
+			if (v != null) {
+				if (!web.getIndices().containsKey(v)) {
+					queue.add(new FrontierEntry(v, entry.getDepth() + 1));
+					web.addVertex(v);
+					if (log != null) {
+						log.vertex(v, entry.getDepth() + 1);
 					}
-				} else {
-					System.out.println("--ignore");
 				}
+				addEdge(web, url, v);
+			} else {
+				System.out.println("--ignore");
+			}
+
+		}
+		return true;
+	}
 
+	/**
+	 * Canonicalizes a link found on a page, counting it as a collapsed
+	 * duplicate if it is a new spelling of a url already in the graph.
+	 * @param web
+	 * @param page parsed url of the page the link is on
+	 * @param href absolute url of the link
+	 * @param depth depth the link's page would have
+	 * @return normal form of the link, or null if it should be ignored
+	 */
+	private String canonicalLink(MyGraph<String> web, UrlCanonicalizer.Parsed page, String href, int depth) {
+		UrlCanonicalizer.Parsed link = canonicalizer.parse(href);
+		if (page == null || link == null || UrlCanonicalizer.ignoreLink(page, link)) {
+			return null;
+		}
+		if (rawLinks.add(href) && web.getIndices().containsKey(link.url)) {
+			duplicatesCollapsed++;
+			if (depth <= maxDepth) {
+				fetchesSaved++;
 			}
 		}
+		return link.url;
+	}
 
-		return web;
+	/**
+	 * Adds an edge to the graph and records it in the checkpoint, if any.
+	 * @param web
+	 * @param source
+	 * @param destination
+	 */
+	private void addEdge(MyGraph<String> web, String source, String destination) {
+		if (web.addEdge(source, destination) && log != null) {
+			log.edge(web.getIndex(destination));
+		}
+	}
+
+	/**
+	 * Outcome of fetching one page: its links, and whether they were
+	 * parsed anew or taken from the history.
+	 */
+	private static class Page {
+		final List<String> links;
+		final boolean changed;
+		final long bytesSaved;
+		final long parseNanosSaved;
+
+		Page(List<String> links, boolean changed, long bytesSaved, long parseNanosSaved) {
+			this.links = links;
+			this.changed = changed;
+			this.bytesSaved = bytesSaved;
+			this.parseNanosSaved = parseNanosSaved;
+		}
 	}
 }
@@ -0,0 +1,251 @@
+package pa1;
+
+import java.util.List;
+
+/**
+ * Iterator over the documents matching part of a query, in increasing order
+ * of doc id. Iterators are lazy: nothing is materialized, and an iterator
+ * can skip ahead to a target doc id so that intersections only touch the
+ * postings they need.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+abstract class DocIterator {
+	/**
+	 * Doc id returned once an iterator is exhausted.
+	 */
+	static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	/**
+	 * Returns the current doc id, -1 before the first call to next()
+	 * or advance(), and NO_MORE_DOCS once the iterator is exhausted.
+	 * @return current doc id
+	 */
+	abstract int doc();
+
+	/**
+	 * Moves to the next matching document.
+	 * @return its doc id, or NO_MORE_DOCS
+	 */
+	abstract int next();
+
+	/**
+	 * Moves to the first matching document whose doc id is at least
+	 * target, which must be greater than the current doc id.
+	 * @param target
+	 * @return its doc id, or NO_MORE_DOCS
+	 */
+	abstract int advance(int target);
+
+	/**
+	 * Returns the rank of the current document, the sum of the ranks
+	 * of the keywords that matched it.
+	 * @return rank of current document
+	 */
+	abstract int rank();
+
+	/**
+	 * Returns an estimate of the number of documents this iterator
+	 * can match, used to order the operands of an AND.
+	 * @return estimated number of matches
+	 */
+	abstract long cost();
+
+	/**
+	 * Moves the given iterator to the first document at or after target.
+	 * @param it
+	 * @param target
+	 * @return doc id of that document, or NO_MORE_DOCS
+	 */
+	static int seek(DocIterator it, int target) {
+		return it.doc() >= target ? it.doc() : it.advance(target);
+	}
+
+	/**
+	 * Documents of a single posting list where the keyword has a positive
+	 * rank, that is, its frequency times the page rank is above zero.
+	 */
+	static class TermIterator extends DocIterator {
+		private final Postings list;
+		private final Index index;
+		private int pos = -1;
+		private int doc = -1;
+		private int rank;
+
+		TermIterator(Postings list, Index index) {
+			this.list = list;
+			this.index = index;
+		}
+
+		@Override
+		int doc() {
+			return doc;
+		}
+
+		@Override
+		int next() {
+			return settle(pos + 1);
+		}
+
+		@Override
+		int advance(int target) {
+			return settle(list.advance(Math.max(pos, 0), target));
+		}
+
+		/**
+		 * Moves to the first posting at or after position p
+		 * with a positive rank.
+		 * @param p
+		 * @return doc id of that posting, or NO_MORE_DOCS
+		 */
+		private int settle(int p) {
+			while(p < list.size()) {
+				rank = list.freq(p) * index.rank(list.doc(p));
+				if(rank > 0) {
+					pos = p;
+					doc = list.doc(p);
+					return doc;
+				}
+				p++;
+			}
+			pos = list.size();
+			doc = NO_MORE_DOCS;
+			return doc;
+		}
+
+		@Override
+		int rank() {
+			return rank;
+		}
+
+		@Override
+		long cost() {
+			return list.size();
+		}
+	}
+
+	/**
+	 * Documents matched by every required iterator and by none of the
+	 * excluded ones. The required iterators are expected cheapest first;
+	 * the first one leads and the others are advanced to its documents.
+	 */
+	static class AndIterator extends DocIterator {
+		private final DocIterator[] required;
+		private final DocIterator[] excluded;
+		private int doc = -1;
+
+		AndIterator(List<DocIterator> required, List<DocIterator> excluded) {
+			this.required = required.toArray(new DocIterator[0]);
+			this.excluded = excluded.toArray(new DocIterator[0]);
+		}
+
+		@Override
+		int doc() {
+			return doc;
+		}
+
+		@Override
+		int next() {
+			return doNext(required[0].next());
+		}
+
+		@Override
+		int advance(int target) {
+			return doNext(required[0].advance(target));
+		}
+
+		/**
+		 * Finds the first common document at or after the given
+		 * candidate from the lead iterator.
+		 * @param candidate
+		 * @return doc id of that document, or NO_MORE_DOCS
+		 */
+		private int doNext(int candidate) {
+			search:
+			while(candidate != NO_MORE_DOCS) {
+				for(int i = 1; i < required.length; i++) {
+					int d = seek(required[i], candidate);
+					if(d > candidate) {
+						candidate = required[0].advance(d);
+						continue search;
+					}
+				}
+				for(DocIterator it : excluded) {
+					if(seek(it, candidate) == candidate) {
+						candidate = required[0].next();
+						continue search;
+					}
+				}
+				break;
+			}
+			doc = candidate;
+			return doc;
+		}
+
+		@Override
+		int rank() {
+			int rank = 0;
+			for(DocIterator it : required) {
+				rank += it.rank();
+			}
+			return rank;
+		}
+
+		@Override
+		long cost() {
+			return required[0].cost();
+		}
+	}
+
+	/**
+	 * Documents matched by at least one of the given iterators.
+	 */
+	static class OrIterator extends DocIterator {
+		private final DocIterator[] options;
+		private int doc = -1;
+
+		OrIterator(List<DocIterator> options) {
+			this.options = options.toArray(new DocIterator[0]);
+		}
+
+		@Override
+		int doc() {
+			return doc;
+		}
+
+		@Override
+		int next() {
+			return doc == NO_MORE_DOCS ? doc : advance(doc + 1);
+		}
+
+		@Override
+		int advance(int target) {
+			int min = NO_MORE_DOCS;
+			for(DocIterator it : options) {
+				min = Math.min(min, seek(it, target));
+			}
+			doc = min;
+			return doc;
+		}
+
+		@Override
+		int rank() {
+			int rank = 0;
+			for(DocIterator it : options) {
+				if(it.doc() == doc) {
+					rank += it.rank();
+				}
+			}
+			return rank;
+		}
+
+		@Override
+		long cost() {
+			long cost = 0;
+			for(DocIterator it : options) {
+				cost += it.cost();
+			}
+			return cost;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package pa1;
+
+/**
+ * Visited set that stores a 64-bit fingerprint of each url instead of the
+ * url itself, in an open-addressing table of longs with linear probing.
+ * Each url costs 16 to 32 bytes of table space rather than a String, its
+ * char array and a hash map entry. Two different urls are confused only if
+ * their fingerprints collide, which for a crawl of n urls happens with
+ * probability about n^2 / 2^65, so the set is treated as exact.
+ * <p>
+ * A {@link BloomFilter} can be placed in front of the table. Urls the filter
+ * has never seen, which is most of the urls looked up during a crawl of new
+ * territory, are then answered from the filter's smaller bit arrays
+ * without probing the table.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class FingerprintSet implements VisitedSet {
+	private static final long EMPTY = 0;
+
+	private long[] table;
+	private int mask;
+	private long size = 0;
+	private final BloomFilter front;
+
+	/**
+	 * Constructs an empty set.
+	 */
+	public FingerprintSet() {
+		this(null);
+	}
+
+	/**
+	 * Constructs an empty set that checks the given filter before
+	 * probing its table. The filter must be empty and should not
+	 * be used elsewhere.
+	 * @param front filter to consult first, or null for none
+	 */
+	public FingerprintSet(BloomFilter front) {
+		this.table = new long[1024];
+		this.mask = table.length - 1;
+		this.front = front;
+	}
+
+	@Override
+	public boolean add(String url) {
+		long fp = fingerprint(url);
+		if(front != null && front.put(fp)) {
+			insert(fp);
+			return true;
+		}
+		int slot = find(fp);
+		if(table[slot] == fp) {
+			return false;
+		}
+		insert(fp);
+		return true;
+	}
+
+	@Override
+	public boolean contains(String url) {
+		long fp = fingerprint(url);
+		if(front != null && !front.mightContain(fp)) {
+			return false;
+		}
+		return table[find(fp)] == fp;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public long memoryBytes() {
+		return 8L * table.length + (front != null ? front.memoryBytes() : 0);
+	}
+
+	/**
+	 * Returns the slot holding the given fingerprint,
+	 * or the empty slot where it would be inserted.
+	 * @param fp
+	 * @return slot index
+	 */
+	private int find(long fp) {
+		int slot = (int) fp & mask;
+		while(table[slot] != EMPTY && table[slot] != fp) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Inserts a fingerprint known not to be in the table,
+	 * doubling the table when it becomes half full.
+	 * @param fp
+	 */
+	private void insert(long fp) {
+		if(size + 1 > table.length / 2) {
+			long[] old = table;
+			table = new long[old.length * 2];
+			mask = table.length - 1;
+			for(long f : old) {
+				if(f != EMPTY) {
+					table[find(f)] = f;
+				}
+			}
+		}
+		table[find(fp)] = fp;
+		size++;
+	}
+
+	/**
+	 * Returns a well-mixed 64-bit hash of the given url: 64-bit FNV-1a
+	 * over its chars followed by the MurmurHash3 finalizer. Never
+	 * returns 0, which marks an empty table slot.
+	 * @param url
+	 * @return nonzero fingerprint
+	 */
+	static long fingerprint(String url) {
+		long h = 0xcbf29ce484222325L;
+		for(int i = 0; i < url.length(); i++) {
+			h ^= url.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h != EMPTY ? h : 1;
+	}
+}
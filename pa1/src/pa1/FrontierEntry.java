@@ -0,0 +1,38 @@
+package pa1;
+
+/**
+ * A url waiting in the crawl frontier together with its BFS depth,
+ * that is, its distance from the seed url at the time it was discovered.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class FrontierEntry {
+	private final String url;
+	private final int depth;
+
+	/**
+	 * Constructs a frontier entry for the given url at the given depth.
+	 * @param url
+	 * @param depth
+	 */
+	FrontierEntry(String url, int depth) {
+		this.url = url;
+		this.depth = depth;
+	}
+
+	/**
+	 * Returns the url of this entry.
+	 * @return url
+	 */
+	String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Returns the depth of this entry.
+	 * @return distance from the seed url
+	 */
+	int getDepth() {
+		return depth;
+	}
+}
@@ -0,0 +1,228 @@
+package pa1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import api.Graph;
+import api.TaggedVertex;
+
+/**
+ * Compact binary snapshot of a web graph, so that a crawl can be reloaded
+ * instead of repeated. A snapshot holds a string table with the url of every
+ * vertex followed by int adjacency arrays for outgoing and incoming edges.
+ * Writing streams the graph to disk one vertex at a time, and reading maps
+ * the file into memory and serves a read-only Graph straight from the
+ * mapped buffer.
+ * <p>
+ * The file is laid out as follows, with all numbers big-endian ints:
+ * <pre>
+ *   magic, version, vertexCount, outEdgeCount, inEdgeCount, urlByteCount
+ *   url bytes (UTF-8)
+ *   out-edge targets, grouped by source vertex
+ *   in-edge sources, grouped by target vertex
+ *   int[vertexCount]     incoming counts from vertexDataWithIncomingCounts()
+ *   int[vertexCount + 1] url offsets
+ *   int[vertexCount + 1] out-edge offsets
+ *   int[vertexCount + 1] in-edge offsets
+ * </pre>
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class GraphSnapshot {
+	private static final int MAGIC = 0x47524631; // "GRF1"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 6 * 4;
+
+	/**
+	 * Writes a snapshot of the given graph to a file. Vertex indices,
+	 * the order of every neighbor and incoming list, and the incoming
+	 * counts are all preserved.
+	 * @param graph
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(Graph<String> graph, File file) throws IOException {
+		ArrayList<TaggedVertex<String>> vertices = graph.vertexDataWithIncomingCounts();
+		int n = vertices.size();
+		int[] urlOffsets = new int[n + 1];
+		int[] outOffsets = new int[n + 1];
+		int[] inOffsets = new int[n + 1];
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			for(int i = 0; i < HEADER_SIZE / 4; i++) {
+				out.writeInt(0);
+			}
+			for(int i = 0; i < n; i++) {
+				byte[] bytes = vertices.get(i).getVertexData().getBytes(StandardCharsets.UTF_8);
+				out.write(bytes);
+				urlOffsets[i + 1] = urlOffsets[i] + bytes.length;
+			}
+			for(int i = 0; i < n; i++) {
+				List<Integer> neighbors = graph.getNeighbors(i);
+				for(int v : neighbors) {
+					out.writeInt(v);
+				}
+				outOffsets[i + 1] = outOffsets[i] + neighbors.size();
+			}
+			for(int i = 0; i < n; i++) {
+				List<Integer> incoming = graph.getIncoming(i);
+				for(int v : incoming) {
+					out.writeInt(v);
+				}
+				inOffsets[i + 1] = inOffsets[i] + incoming.size();
+			}
+			for(TaggedVertex<String> tv : vertices) {
+				out.writeInt(tv.getTagValue());
+			}
+			for(int[] offsets : new int[][] { urlOffsets, outOffsets, inOffsets }) {
+				for(int offset : offsets) {
+					out.writeInt(offset);
+				}
+			}
+		}
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.writeInt(MAGIC);
+			raf.writeInt(VERSION);
+			raf.writeInt(n);
+			raf.writeInt(outOffsets[n]);
+			raf.writeInt(inOffsets[n]);
+			raf.writeInt(urlOffsets[n]);
+		}
+	}
+
+	/**
+	 * Memory-maps a snapshot written by {@link #write(Graph, File)} and
+	 * returns a read-only graph backed by it.
+	 * @param file
+	 * @return graph read from the snapshot
+	 * @throws IOException if the file cannot be read or is not a snapshot
+	 */
+	public static Graph<String> open(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Graph snapshot is larger than 2 GB: " + file);
+			}
+			return new MappedGraph(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Read-only graph served from a mapped snapshot.
+	 */
+	private static class MappedGraph implements Graph<String> {
+		private final ByteBuffer buffer;
+		private final int vertexCount;
+		private final int urlBytesPos;
+		private final int outTargetsPos;
+		private final int inSourcesPos;
+		private final int countsPos;
+		private final int urlOffsetsPos;
+		private final int outOffsetsPos;
+		private final int inOffsetsPos;
+
+		MappedGraph(ByteBuffer buffer) throws IOException {
+			if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+				throw new IOException("Not a graph snapshot file");
+			}
+			if(buffer.getInt(4) != VERSION) {
+				throw new IOException("Unsupported graph snapshot version " + buffer.getInt(4));
+			}
+			this.buffer = buffer;
+			vertexCount = buffer.getInt(8);
+			urlBytesPos = HEADER_SIZE;
+			outTargetsPos = urlBytesPos + buffer.getInt(20);
+			inSourcesPos = outTargetsPos + 4 * buffer.getInt(12);
+			countsPos = inSourcesPos + 4 * buffer.getInt(16);
+			urlOffsetsPos = countsPos + 4 * vertexCount;
+			outOffsetsPos = urlOffsetsPos + 4 * (vertexCount + 1);
+			inOffsetsPos = outOffsetsPos + 4 * (vertexCount + 1);
+			if(inOffsetsPos + 4 * (vertexCount + 1) != buffer.capacity()) {
+				throw new IOException("Graph snapshot file is truncated or corrupt");
+			}
+		}
+
+		/**
+		 * Decodes the url of the vertex with the given index.
+		 * @param index
+		 * @return url
+		 */
+		private String url(int index) {
+			int start = buffer.getInt(urlOffsetsPos + 4 * index);
+			int end = buffer.getInt(urlOffsetsPos + 4 * (index + 1));
+			byte[] bytes = new byte[end - start];
+			for(int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(urlBytesPos + start + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public ArrayList<String> vertexData() {
+			ArrayList<String> keyArr = new ArrayList<String>(vertexCount);
+			for(int i = 0; i < vertexCount; i++) {
+				keyArr.add(url(i));
+			}
+			return keyArr;
+		}
+
+		@Override
+		public ArrayList<TaggedVertex<String>> vertexDataWithIncomingCounts() {
+			ArrayList<TaggedVertex<String>> taggedArr = new ArrayList<TaggedVertex<String>>(vertexCount);
+			for(int i = 0; i < vertexCount; i++) {
+				taggedArr.add(new TaggedVertex<String>(url(i), buffer.getInt(countsPos + 4 * i)));
+			}
+			return taggedArr;
+		}
+
+		@Override
+		public List<Integer> getNeighbors(int index) {
+			return edges(index, outOffsetsPos, outTargetsPos);
+		}
+
+		@Override
+		public List<Integer> getIncoming(int index) {
+			return edges(index, inOffsetsPos, inSourcesPos);
+		}
+
+		/**
+		 * Returns a list view of the edges of the given vertex.
+		 * @param index
+		 * @param offsetsPos position of the offsets array for the edges
+		 * @param edgesPos position of the edge array
+		 * @return read-only view backed by the buffer
+		 */
+		private List<Integer> edges(int index, int offsetsPos, final int edgesPos) {
+			if(index < 0 || index >= vertexCount) {
+				throw new ArrayIndexOutOfBoundsException(index);
+			}
+			final int from = buffer.getInt(offsetsPos + 4 * index);
+			final int to = buffer.getInt(offsetsPos + 4 * (index + 1));
+			return new AbstractList<Integer>() {
+				@Override
+				public Integer get(int i) {
+					if(i < 0 || i >= to - from) {
+						throw new IndexOutOfBoundsException("Index: " + i);
+					}
+					return buffer.getInt(edgesPos + 4 * (from + i));
+				}
+
+				@Override
+				public int size() {
+					return to - from;
+				}
+			};
+		}
+	}
+}
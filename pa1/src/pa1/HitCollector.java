@@ -0,0 +1,16 @@
+package pa1;
+
+/**
+ * Receives the matching documents of a query one at a time,
+ * in increasing order of doc id.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+interface HitCollector {
+	/**
+	 * Called once for each matching document with a positive rank.
+	 * @param doc
+	 * @param rank
+	 */
+	void collect(int doc, int rank);
+}
@@ -0,0 +1,97 @@
+package pa1;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-host token bucket used to keep the crawler polite. Each host may
+ * receive a burst of up to the given number of requests, after which
+ * requests to that host are spread out evenly over the given period.
+ * Requests to different hosts never wait on each other.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class HostRateLimiter {
+	private final double capacity;
+	private final double tokensPerMilli;
+	private final Map<String, Bucket> buckets = new HashMap<String, Bucket>();
+
+	/**
+	 * Constructs a limiter allowing at most the given number of requests
+	 * per host in any period of the given length.
+	 * @param requests
+	 * @param periodMillis
+	 */
+	public HostRateLimiter(int requests, long periodMillis) {
+		if(requests <= 0 || periodMillis <= 0) {
+			throw new IllegalArgumentException("requests and period must be positive");
+		}
+		this.capacity = requests;
+		this.tokensPerMilli = (double) requests / periodMillis;
+	}
+
+	/**
+	 * Blocks until a request to the host of the given url is allowed.
+	 * Urls without a parsable host all share a single bucket.
+	 * @param url
+	 * @throws InterruptedException
+	 */
+	public void acquire(String url) throws InterruptedException {
+		long wait = reserve(host(url), System.currentTimeMillis());
+		if(wait > 0) {
+			Thread.sleep(wait);
+		}
+	}
+
+	/**
+	 * Takes a token from the bucket of the given host, going into debt
+	 * if the bucket is empty, and returns how long the caller must wait
+	 * before its request is allowed.
+	 * @param host
+	 * @param now
+	 * @return wait time in milliseconds
+	 */
+	private synchronized long reserve(String host, long now) {
+		Bucket bucket = buckets.get(host);
+		if(bucket == null) {
+			bucket = new Bucket(capacity, now);
+			buckets.put(host, bucket);
+		}
+		bucket.tokens = Math.min(capacity, bucket.tokens + (now - bucket.updated) * tokensPerMilli);
+		bucket.updated = now;
+		bucket.tokens -= 1;
+		if(bucket.tokens >= 0) {
+			return 0;
+		}
+		return (long) Math.ceil(-bucket.tokens / tokensPerMilli);
+	}
+
+	/**
+	 * Returns the host of the given url, or the empty string
+	 * if it cannot be parsed.
+	 * @param url
+	 * @return host of url
+	 */
+	private static String host(String url) {
+		try {
+			return new URL(url).getHost();
+		} catch (MalformedURLException e) {
+			return "";
+		}
+	}
+
+	/**
+	 * Token count of a single host.
+	 */
+	private static class Bucket {
+		private double tokens;
+		private long updated;
+
+		Bucket(double tokens, long updated) {
+			this.tokens = tokens;
+			this.updated = updated;
+		}
+	}
+}
@@ -1,26 +1,60 @@
 package pa1;
 
+import java.io.File;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.jsoup.Jsoup;
 
 import api.TaggedVertex;
-import api.Util;
 
 /**
  * Implementation of an inverted index for a web graph.
+ * <p>
+ * After the index is made, pages can be added, updated and removed one at
+ * a time. Changed pages are indexed into a small in-memory buffer under new
+ * doc ids, and the buffer becomes a new segment once it holds enough pages;
+ * the doc id of a removed or replaced page is marked deleted and its rank
+ * set to zero, which hides it from every search. A background thread
+ * merges adjacent segments of similar size, leaving out deleted pages, so
+ * the number of segments stays logarithmic in the number of changes.
+ * Searches read all segments under a shared lock that changes take
+ * exclusively, so each search sees the index either before or after any
+ * one change.
  * 
  * @author Lorenzo Zenitsky, Gabrielle Johnston
  */
 public class Index {
-	private List<TaggedVertex<String>> urls;
-	private Map<String, Map<String, Integer>> invertedIndex;
+	private ArrayList<Segment> segments = new ArrayList<Segment>();
+	private TermDictionary buffer = new TermDictionary();
+	private int bufferFrom;
+	private int bufferSize = 1000;
+	private BitSet deleted = new BitSet();
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private ExecutorService merger;
+	private ArrayList<String> docUrls = new ArrayList<String>();
+	private HashMap<String, Integer> docIds = new HashMap<String, Integer>();
+	private int[] ranks;
+	private IndexSegment segment;
+	private PageStore pageStore;
+	private HostRateLimiter rateLimiter = new HostRateLimiter(50, 3000);
+	private StopwordMatcher stopwords = StopwordMatcher.english();
+	private boolean positional = false;
+	private volatile TermLexicon lexicon;
+	private volatile TermLexicon bufferLexicon;
 
 	/**
 	 * Constructs an index from the given list of urls. The tag value for each url
@@ -30,83 +64,702 @@ public class Index {
 	 *            information about graph to be indexed
 	 */
 	public Index(List<TaggedVertex<String>> urls) {
-		this.urls = urls;
-		this.invertedIndex = new HashMap<String, Map<String, Integer>>();
+		this.ranks = new int[urls.size()];
+		for(TaggedVertex<String> tv : urls) {
+			String url = tv.getVertexData();
+			if(!docIds.containsKey(url)) {
+				ranks[docUrls.size()] = tv.getTagValue();
+				docIds.put(url, docUrls.size());
+				docUrls.add(url);
+			}
+		}
+		this.bufferFrom = docUrls.size();
+	}
+
+	/**
+	 * Constructs an index from the given list of urls that reads page text
+	 * from the given store, such as one filled by a Crawler, and only
+	 * downloads the pages the store does not hold.
+	 * 
+	 * @param urls
+	 *            information about graph to be indexed
+	 * @param pageStore
+	 *            text of pages that were already downloaded
+	 */
+	public Index(List<TaggedVertex<String>> urls, PageStore pageStore) {
+		this(urls);
+		this.pageStore = pageStore;
+	}
+
+	/**
+	 * Constructs an index backed by the given segment.
+	 * @param segment
+	 * @param pageStore
+	 */
+	private Index(IndexSegment segment, PageStore pageStore) {
+		this.segment = segment;
+		this.pageStore = pageStore;
+	}
+
+	/**
+	 * Opens an index previously written with {@link #save(File)}. The file
+	 * is memory-mapped and queries read it directly, so opening is fast
+	 * regardless of the size of the index. The first change made to the
+	 * returned index, such as updateDocument(), loads the postings of the
+	 * file into memory, where they become the first segment of an index
+	 * that is changed as usual; the pages themselves are not parsed again.
+	 * @param file
+	 * @return index backed by the file
+	 * @throws IOException if the file cannot be read or is not an index
+	 */
+	public static Index open(File file) throws IOException {
+		return open(file, null);
+	}
+
+	/**
+	 * Opens an index previously written with {@link #save(File)} like
+	 * {@link #open(File)}, reading the text of pages added or updated
+	 * later from the given store, such as one filled by a Crawler.
+	 * @param file
+	 * @param pageStore
+	 *            text of pages that were already downloaded
+	 * @return index backed by the file
+	 * @throws IOException if the file cannot be read or is not an index
+	 */
+	public static Index open(File file, PageStore pageStore) throws IOException {
+		return new Index(IndexSegment.open(file), pageStore);
+	}
+
+	/**
+	 * Writes this index, including the url and rank of every page, to the
+	 * given file as an immutable segment that can be reopened with
+	 * {@link #open(File)}. Removed and replaced pages are left out, and
+	 * the remaining pages are numbered again without gaps. An index opened
+	 * from a file and not changed since is copied as it is, so the file can
+	 * be saved again for the next run even when nothing changed.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		lock.readLock().lock();
+		try {
+			if(segment != null) {
+				segment.copyTo(file);
+				return;
+			}
+			int n = docUrls.size();
+			int[] docMap = new int[n];
+			ArrayList<String> liveUrls = new ArrayList<String>(n - deleted.cardinality());
+			int[] liveRanks = new int[n - deleted.cardinality()];
+			for(int doc = 0; doc < n; doc++) {
+				if(!deleted.get(doc)) {
+					docMap[doc] = liveUrls.size();
+					liveRanks[liveUrls.size()] = ranks[doc];
+					liveUrls.add(docUrls.get(doc));
+				}
+			}
+			TermDictionary all = new TermDictionary(buffer.isPositional());
+			for(Segment s : segments) {
+				all.merge(s.terms, deleted, docMap);
+			}
+			all.merge(buffer, deleted, docMap);
+			IndexSegment.write(file, liveUrls, liveRanks, all);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Sets the per-host limiter that page downloads go through.
+	 * The default allows 50 requests per host every 3 seconds.
+	 * @param rateLimiter
+	 */
+	public void setRateLimiter(HostRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Sets the stop words left out of the index when it is made.
+	 * The default is the English list of Util.isStopWord.
+	 * @param stopwords
+	 */
+	public void setStopwords(StopwordMatcher stopwords) {
+		this.stopwords = stopwords;
+	}
+
+	/**
+	 * Sets the number of pages added or updated since the last segment was
+	 * made after which the in-memory buffer becomes a segment of its own.
+	 * The default is 1000.
+	 * @param bufferSize
+	 */
+	public void setBufferSize(int bufferSize) {
+		if(bufferSize < 1) {
+			throw new IllegalArgumentException("bufferSize must be at least 1");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Sets whether the index keeps the token position of every occurrence
+	 * of a term, which {@link #searchPhrase(String)} and
+	 * {@link #searchNear(String, String, int)} need. Takes effect the next
+	 * time the index is made. Positions are not written by save().
+	 * @param positional
+	 */
+	public void setPositional(boolean positional) {
+		this.positional = positional;
 	}
 
 	/**
-	 * Parses the given body that was extracted from the given url
-	 * using the jsoup library. A new word is only added to the inverted
-	 * index if it is both not a stop word and is not already in the index.
+	 * Returns the number of bytes held by the posting lists of this
+	 * index, including positions in positional mode.
+	 * @return memory used by the postings
+	 */
+	public long postingMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			long bytes = buffer.memoryBytes();
+			for(Segment s : segments) {
+				bytes += s.terms.memoryBytes();
+			}
+			return bytes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of segments the index is split into, not counting
+	 * the buffer of recently changed pages.
+	 * @return number of segments
+	 */
+	public int getSegmentCount() {
+		lock.readLock().lock();
+		try {
+			return segments.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Parses the given body that was extracted from the url with the given
+	 * doc id using the jsoup library. Every word that is not a stop word
+	 * adds an occurrence to the posting list of its term in the given
+	 * dictionary, creating the term if it is not already there. In a
+	 * positional dictionary the occurrence records the word's position.
 	 * @param body
-	 * @param url
+	 * @param doc
+	 * @param dict
+	 * @param tokenizer
 	 */
-	private void parseBody(String body, String url) {
-		Scanner scanner = new Scanner(body);
-		while (scanner.hasNext()) {
-			String next = scanner.next();
-			next = Util.stripPunctuation(next);
-			if (!(Util.isStopWord(next))) {
-				if(invertedIndex.containsKey(next)) {
-					Map<String, Integer> list = invertedIndex.get(next);
-					if(!list.containsKey(url)) {
-						list.put(url, 1);
+	private void parseBody(String body, final int doc, final TermDictionary dict, Tokenizer tokenizer) {
+		tokenizer.tokenize(body, new Tokenizer.TermSink() {
+			// every word, stop word or not, takes up one position
+			private int position = 0;
+
+			@Override
+			public void term(char[] buffer, int length) {
+				if (!(stopwords.matches(buffer, 0, length))) {
+					PostingList list = dict.postings(dict.getOrAdd(new String(buffer, 0, length)));
+					if (dict.isPositional()) {
+						list.add(doc, position);
+					} else {
+						list.add(doc);
 					}
-					else {
-						int rank = list.get(url);
-						rank++;
-						list.put(url, rank);
+				}
+				position++;
+			}
+		});
+	}
+
+	/**
+	 * Returns the body text of the given url, taking it from the page
+	 * store when possible and downloading it otherwise.
+	 * @param url
+	 * @return body text, or null if the page could not be downloaded
+	 */
+	private String pageText(String url) {
+		String stored = pageStore == null ? null : pageStore.get(url);
+		if(stored != null) {
+			return stored;
+		}
+		try {
+			rateLimiter.acquire(url);
+			String body = Jsoup.connect(url).get().body().text();
+			if(pageStore != null) {
+				pageStore.put(url, body);
+			}
+			return body;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Indexes the documents with doc ids from (inclusive) to
+	 * to (exclusive) that are not deleted into a new dictionary.
+	 * @param from
+	 * @param to
+	 * @return dictionary holding the postings of the given documents
+	 */
+	private TermDictionary indexRange(int from, int to) {
+		TermDictionary dict = new TermDictionary(positional);
+		Tokenizer tokenizer = new Tokenizer();
+		for (int doc = from; doc < to; doc++) {
+			if(deleted.get(doc)) {
+				continue;
+			}
+			String body = pageText(docUrls.get(doc));
+			if(body != null) {
+				parseBody(body, doc, dict, tokenizer);
+			}
+		}
+		return dict;
+	}
+
+	/**
+	 * If this index is backed by a segment file, loads the urls, ranks and
+	 * postings of the file into memory as the first segment, so that the
+	 * index can be changed. The postings are decoded, not rebuilt from
+	 * the pages. Called by every method that changes the index.
+	 */
+	private void makeWritable() {
+		if(segment == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			int n = segment.docCount();
+			TermDictionary dict = new TermDictionary(false);
+			for(int i = 0; i < segment.termCount(); i++) {
+				dict.add(segment.term(i), segment.postings(i));
+			}
+			ranks = new int[n];
+			for(int doc = 0; doc < n; doc++) {
+				String url = segment.url(doc);
+				ranks[doc] = segment.rank(doc);
+				docIds.put(url, doc);
+				docUrls.add(url);
+			}
+			Segment loaded = new Segment(dict, 0, n);
+			// the segment holds the same terms as the file
+			loaded.lexicon = lexicon;
+			segments = new ArrayList<Segment>();
+			segments.add(loaded);
+			buffer = new TermDictionary(false);
+			bufferFrom = n;
+			positional = false;
+			lexicon = null;
+			bufferLexicon = null;
+			segment = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Creates the index. Each distinct url is indexed once, in the
+	 * order of the urls list, and any previous contents are discarded.
+	 */
+	public synchronized void makeIndex() {
+		makeWritable();
+		int n = docUrls.size();
+		install(indexRange(0, n), n);
+	}
+
+	/**
+	 * Creates the index like {@link #makeIndex()}, downloading and parsing
+	 * pages on the given number of threads. The urls are split into
+	 * contiguous shards, each indexed into its own partial dictionary, and
+	 * the partials are merged in url order, so the result is identical to
+	 * that of the serial version.
+	 * @param threads
+	 */
+	public synchronized void makeIndex(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		makeWritable();
+		int n = docUrls.size();
+		int shards = Math.min(n, threads * 4);
+		if(threads == 1 || shards <= 1) {
+			makeIndex();
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<TermDictionary>> partials = new ArrayList<Future<TermDictionary>>();
+			for(int i = 0; i < shards; i++) {
+				final int from = (int) ((long) n * i / shards);
+				final int to = (int) ((long) n * (i + 1) / shards);
+				partials.add(pool.submit(new Callable<TermDictionary>() {
+					@Override
+					public TermDictionary call() {
+						return indexRange(from, to);
 					}
+				}));
+			}
+
+			TermDictionary merged = new TermDictionary(positional);
+			for(Future<TermDictionary> partial : partials) {
+				merged.merge(partial.get());
+			}
+			install(merged, n);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Replaces the contents of the index with the given dictionary of
+	 * the first n doc ids.
+	 * @param dict
+	 * @param n
+	 */
+	private void install(TermDictionary dict, int n) {
+		lock.writeLock().lock();
+		try {
+			segments = new ArrayList<Segment>();
+			segments.add(new Segment(dict, 0, n));
+			buffer = new TermDictionary(positional);
+			bufferFrom = n;
+			bufferLexicon = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the page with the given url to the index, with the given rank.
+	 * The page text is read as by makeIndex(), from the page store when it
+	 * holds the url and downloaded otherwise. Only the new page is parsed.
+	 * 
+	 * @param url
+	 *            url of the page
+	 * @param rank
+	 *            indegree of the url in the associated graph
+	 * @throws IllegalArgumentException
+	 *            if the url is already in the index
+	 */
+	public synchronized void addDocument(String url, int rank) {
+		makeWritable();
+		if(docIds.containsKey(url)) {
+			throw new IllegalArgumentException("Url is already indexed: " + url);
+		}
+		apply(url, rank, pageText(url));
+	}
+
+	/**
+	 * Indexes the current text of the page with the given url again,
+	 * keeping its rank, or adds the page with rank 1 if it is not in the
+	 * index. Store the new text in the page store first so that it is used
+	 * instead of the old one.
+	 * 
+	 * @param url
+	 *            url of the page
+	 */
+	public synchronized void updateDocument(String url) {
+		makeWritable();
+		Integer doc = docIds.get(url);
+		updateDocument(url, doc == null ? 1 : ranks[doc]);
+	}
+
+	/**
+	 * Indexes the current text of the page with the given url again with
+	 * the given rank, or adds the page if it is not in the index. The page
+	 * gets a new doc id and its old one is deleted; searches see either the
+	 * old or the new version of the page, never both or neither. If the
+	 * page cannot be downloaded, the old version is kept.
+	 * 
+	 * @param url
+	 *            url of the page
+	 * @param rank
+	 *            indegree of the url in the associated graph
+	 */
+	public synchronized void updateDocument(String url, int rank) {
+		makeWritable();
+		apply(url, rank, pageText(url));
+	}
+
+	/**
+	 * Sets the rank of every page of the given list that is in the index
+	 * to the tag value it has in the list, such as its indegree in a new
+	 * crawl of the same graph. Pages are not parsed again, and pages of
+	 * the list that are not in the index are ignored.
+	 * 
+	 * @param urls
+	 *            information about the graph the index covers
+	 */
+	public synchronized void updateRanks(List<TaggedVertex<String>> urls) {
+		makeWritable();
+		lock.writeLock().lock();
+		try {
+			for(TaggedVertex<String> tv : urls) {
+				Integer doc = docIds.get(tv.getVertexData());
+				if(doc != null) {
+					ranks[doc] = tv.getTagValue();
 				}
-				else {
-					Map<String, Integer> list = new HashMap<String, Integer>();
-					list.put(url, 1);
-					invertedIndex.put(next, list);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the page with the given url from the index.
+	 * 
+	 * @param url
+	 *            url of the page
+	 * @return true if the page was in the index
+	 */
+	public synchronized boolean removeDocument(String url) {
+		makeWritable();
+		lock.writeLock().lock();
+		try {
+			Integer doc = docIds.remove(url);
+			if(doc == null) {
+				return false;
+			}
+			delete(doc);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Makes the buffer of recently changed pages a segment and waits until
+	 * the background merges it starts are done.
+	 */
+	public synchronized void flush() {
+		makeWritable();
+		lock.writeLock().lock();
+		try {
+			if(docUrls.size() > bufferFrom) {
+				seal();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		if(merger != null) {
+			// runs after every merge queued so far, on the merge thread
+			Future<?> done = merger.submit(new Runnable() {
+				@Override
+				public void run() {
 				}
+			});
+			try {
+				done.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
 			}
 		}
-		scanner.close();
 	}
 
 	/**
-	 * Creates the index.
+	 * Parses a page into the buffer under the next doc id, deleting the
+	 * page's previous doc id if it has one. The text is fetched before
+	 * the write lock is taken, so searches only wait for the parse.
+	 * @param url
+	 * @param rank
+	 * @param body page text, or null if it could not be downloaded
 	 */
-	public void makeIndex() {
-		int requests = 0;
-		for (TaggedVertex<String> tv : urls) {
-			String url = tv.getVertexData();
+	private void apply(String url, int rank, String body) {
+		lock.writeLock().lock();
+		try {
+			Integer old = docIds.get(url);
+			if(old != null) {
+				if(body == null) {
+					// keep the indexed version rather than replace it with nothing
+					return;
+				}
+				delete(old);
+			}
+			int doc = docUrls.size();
+			if(doc == ranks.length) {
+				ranks = Arrays.copyOf(ranks, Math.max(16, ranks.length * 2));
+			}
+			ranks[doc] = rank;
+			docIds.put(url, doc);
+			docUrls.add(url);
+			if(body != null) {
+				parseBody(body, doc, buffer, new Tokenizer());
+			}
+			bufferLexicon = null;
+			if(docUrls.size() - bufferFrom >= bufferSize) {
+				seal();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Marks the given doc id deleted. Its rank becomes zero, so searches
+	 * skip its postings until a merge drops them.
+	 * @param doc
+	 */
+	private void delete(int doc) {
+		deleted.set(doc);
+		ranks[doc] = 0;
+	}
+
+	/**
+	 * Makes the buffer a segment and starts a new one, then schedules a
+	 * background merge. Called with the write lock held.
+	 */
+	private void seal() {
+		segments.add(new Segment(buffer, bufferFrom, docUrls.size()));
+		buffer = new TermDictionary(buffer.isPositional());
+		bufferFrom = docUrls.size();
+		bufferLexicon = null;
+		if(merger == null) {
+			merger = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "index-merge");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		merger.execute(new Runnable() {
+			@Override
+			public void run() {
+				mergeSegments();
+			}
+		});
+	}
+
+	/**
+	 * Merges adjacent segments until none is at most twice the size of the
+	 * segment after it, counting only pages that are not deleted. Each merge
+	 * reads the segments, which never change once made, without holding the
+	 * lock, and only takes the write lock to swap the merged segment in.
+	 */
+	private void mergeSegments() {
+		while(true) {
+			Segment first;
+			Segment second;
+			BitSet dead;
+			lock.readLock().lock();
 			try {
-				if(requests == 50) {
-					try {
-						Thread.sleep(3000);
-						requests = 0;
-					} catch (InterruptedException ignore) {
-						ignore.printStackTrace();
-					}
+				int i = segments.size() - 2;
+				while(i >= 0 && liveDocs(segments.get(i)) > 2 * liveDocs(segments.get(i + 1))) {
+					i--;
+				}
+				if(i < 0) {
+					return;
+				}
+				first = segments.get(i);
+				second = segments.get(i + 1);
+				dead = (BitSet) deleted.clone();
+			} finally {
+				lock.readLock().unlock();
+			}
+
+			TermDictionary merged = new TermDictionary(first.terms.isPositional());
+			merged.merge(first.terms, dead);
+			merged.merge(second.terms, dead);
+			Segment combined = new Segment(merged, first.from, second.to);
+			if(first.lexicon != null || second.lexicon != null) {
+				// prefix or fuzzy searches are in use, so spare them the build
+				combined.lexicon();
+			}
+
+			lock.writeLock().lock();
+			try {
+				int i = segments.indexOf(first);
+				if(i < 0 || i + 1 >= segments.size() || segments.get(i + 1) != second) {
+					// makeIndex replaced the segments meanwhile
+					return;
 				}
-				String body = Jsoup.connect(url).get().body().text();
-				requests++;
-				parseBody(body, url);
-			} catch (IOException e) {
-				e.printStackTrace();
+				segments.set(i, combined);
+				segments.remove(i + 1);
+			} finally {
+				lock.writeLock().unlock();
 			}
 		}
 	}
-	
+
 	/**
-	 * Returns the rank of the specified url stored in the 
-	 * urls list.
-	 * @param url
-	 * @return rank of url, -1 if not found.
+	 * Returns the number of doc ids of the given segment that are
+	 * not deleted.
+	 * @param s
+	 * @return number of live pages
+	 */
+	private int liveDocs(Segment s) {
+		return s.to - s.from - deleted.get(s.from, s.to).cardinality();
+	}
+
+	/**
+	 * Returns the posting list of the given term. When more than one
+	 * segment holds the term, their lists are chained without copying.
+	 * Called with the read lock held.
+	 * @param w
+	 * @return posting list, empty if the term is not in the index
 	 */
-	private int getRankFromURLs(String url) {
-		for(int i = 0; i < urls.size(); i++) {
-			if(urls.get(i).getVertexData().equals(url)) {
-				return urls.get(i).getTagValue();
+	Postings postings(String w) {
+		if(segment != null) {
+			return segment.postings(w);
+		}
+		Postings[] parts = new Postings[segments.size() + 1];
+		int n = 0;
+		for(Segment s : segments) {
+			PostingList list = s.terms.postings(w);
+			if(list != null && list.size() > 0) {
+				parts[n++] = list;
 			}
 		}
-		
-		return -1;
+		PostingList list = buffer.postings(w);
+		if(list != null && list.size() > 0) {
+			parts[n++] = list;
+		}
+		if(n == 0) {
+			return PostingList.EMPTY;
+		}
+		return n == 1 ? parts[0] : new ChainedPostings(Arrays.copyOf(parts, n));
+	}
+
+	/**
+	 * Returns the indegree rank of the page with the given doc id.
+	 * @param doc
+	 * @return rank of page, zero if the page was removed
+	 */
+	int rank(int doc) {
+		return segment != null ? segment.rank(doc) : ranks[doc];
+	}
+
+	/**
+	 * Returns the url of the page with the given doc id.
+	 * @param doc
+	 * @return url of page
+	 */
+	private String url(int doc) {
+		return segment != null ? segment.url(doc) : docUrls.get(doc);
+	}
+
+	/**
+	 * Returns the number of pages in this index.
+	 * @return number of pages
+	 */
+	private int docCount() {
+		return segment != null ? segment.docCount() : docUrls.size();
 	}
 
 	/**
@@ -121,56 +774,64 @@ public class Index {
 	 * @return ranked list of urls
 	 */
 	public List<TaggedVertex<String>> search(String w) {
-		List<TaggedVertex<String>> ranked = new ArrayList<TaggedVertex<String>>();
-		if(!invertedIndex.containsKey(w)) {
-			return ranked;
-		}
-		else {
-			Map<String, Integer> list = invertedIndex.get(w);
-			for(Map.Entry<String, Integer> entry : list.entrySet()) {
-				String urlSource = entry.getKey();
-				int freq = list.get(urlSource);
-				int rank = freq * getRankFromURLs(urlSource);
-				if(rank > 0) {
-					TaggedVertex<String> tv = new TaggedVertex<String>(urlSource, rank);
-					ranked.add(tv);
-				}
-			}
-		}
-		
-		ranked.sort(new RankComparator());
-		return ranked;
+		RankedHits hits = new RankedHits();
+		search(w, hits);
+		return hits.ranked();
 	}
-	
+
 	/**
-	 * Returns an array list of data from given vertex list.
-	 * @param searchList
-	 * @return array of vertex data
+	 * Returns the k best results of {@link #search(String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w
+	 *            keyword to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
 	 */
-	private ArrayList<String> getData(List<TaggedVertex<String>> searchList) {
-		ArrayList<String> arr = new ArrayList<String>();
-		for(TaggedVertex<String> tv : searchList) {
-			arr.add(tv.getVertexData());
-		}
-		return arr;
+	public List<TaggedVertex<String>> search(String w, int k) {
+		return search(w, 0, k);
 	}
-	
+
 	/**
-	 * Returns rank of given url stored in given list.
-	 * @param url
-	 * @param list
-	 * @return rank of give url from list.
-	 */
-	private int getRankFromList(String url, List<TaggedVertex<String>> list) {
-		int tag = 0;
-		for(TaggedVertex<String> tv : list) {
-			if(tv.getVertexData().equals(url)) {
-				tag = tv.getTagValue();
-				break;
+	 * Returns one page of the results of {@link #search(String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param w
+	 *            keyword to search for
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> search(String w, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		search(w, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Passes every page containing keyword w with a positive rank
+	 * to the given collector.
+	 * @param w
+	 * @param hits
+	 */
+	private void search(String w, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			Postings list = postings(w);
+			for(int i = 0; i < list.size(); i++) {
+				int doc = list.doc(i);
+				int rank = list.freq(i) * rank(doc);
+				if(rank > 0) {
+					hits.collect(doc, rank);
+				}
 			}
+		} finally {
+			lock.readLock().unlock();
 		}
-		
-		return tag;
 	}
 
 	/**
@@ -188,124 +849,169 @@ public class Index {
 	 * @return ranked list of urls
 	 */
 	public List<TaggedVertex<String>> searchWithAnd(String w1, String w2) {
-		List<TaggedVertex<String>> rankedAnd = new ArrayList<TaggedVertex<String>>();
-		
-		List<TaggedVertex<String>> search1 = search(w1);
-		List<TaggedVertex<String>> search2 = search(w2);
-		if(search1.size() <= search2.size()) {
-			ArrayList<String> search2Urls = getData(search2);
-			for(TaggedVertex<String> url : search1) {
-				if(search2Urls.contains(url.getVertexData())) {
-					int rank1 = url.getTagValue();
-					int rank2 = getRankFromList(url.getVertexData(), search2);
-					if(rank1 + rank2 > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank1 + rank2);
-						rankedAnd.add(tv);	
-					}
-				}
-			}
-		}
-		else {
-			ArrayList<String> search1Urls = getData(search1);
-			for(TaggedVertex<String> url : search2) {
-				if(search1Urls.contains(url.getVertexData())) {
-					int rank2 = url.getTagValue();
-					int rank1 = getRankFromList(url.getVertexData(), search1);
-					if(rank1 + rank2 > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank1 + rank2);
-						rankedAnd.add(tv);	
-					}
-				}
-			}
-		}
-		
-		rankedAnd.sort(new RankComparator());
-		return rankedAnd;
+		RankedHits hits = new RankedHits();
+		searchWithAnd(w1, w2, hits);
+		return hits.ranked();
 	}
-	
+
 	/**
-	 * Returns index of given url in list.
-	 * @param url
-	 * @param list
-	 * @return index of given url in list.
+	 * Returns the k best results of {@link #searchWithAnd(String, String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
 	 */
-	private int getIndex(String url, List<TaggedVertex<String>> list) {
-		for(int i = 0; i < list.size(); i++) {
-			if(list.get(i).getVertexData().equals(url)){
-				return i;
-			}
-		}
-		
-		return -1;
+	public List<TaggedVertex<String>> searchWithAnd(String w1, String w2, int k) {
+		return searchWithAnd(w1, w2, 0, k);
 	}
 
 	/**
-	 * Searches the index for pages containing at least one of the keywords w1 and
-	 * w2. Returns a list of qualifying urls ordered by ranking (largest to
-	 * smallest). The tag value associated with each url is its ranking. The ranking
-	 * for a given page is the number of occurrences of w1 plus number of
-	 * occurrences of w2, all multiplied by the indegree of its url in the
-	 * associated graph. No pages with rank zero are included.
+	 * Returns one page of the results of {@link #searchWithAnd(String, String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
 	 * 
 	 * @param w1
 	 *            first keyword to search for
 	 * @param w2
 	 *            second keyword to search for
-	 * @return ranked list of urls
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
 	 */
-	public List<TaggedVertex<String>> searchWithOr(String w1, String w2) {
-		List<TaggedVertex<String>> rankedOr = new ArrayList<TaggedVertex<String>>();
-		
-		List<TaggedVertex<String>> search1 = search(w1);
-		List<TaggedVertex<String>> search2 = search(w2);
-		
-		if(search1.size() <= search2.size()) {
-			rankedOr.addAll(0, search2);
-			ArrayList<String> search2Urls = getData(search2);
-			for(TaggedVertex<String> url : search1) {
-				if(search2Urls.contains(url.getVertexData())) {
-					int rank1 = url.getTagValue();
-					int rank2 = getRankFromList(url.getVertexData(), search2);
-					if(rank1 + rank2 > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank1 + rank2);
-						rankedOr.remove(getIndex(url.getVertexData(), rankedOr));
-						rankedOr.add(tv);	
-					}
-				}
-				else {
-					int rank = url.getTagValue();
-					if(rank > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank);
-						rankedOr.add(tv);	
+	public List<TaggedVertex<String>> searchWithAnd(String w1, String w2, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchWithAnd(w1, w2, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Intersects the posting lists of w1 and w2, walking the shorter list
+	 * and galloping through the longer one.
+	 * @param w1
+	 * @param w2
+	 * @param hits
+	 */
+	private void searchWithAnd(String w1, String w2, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			Postings list1 = postings(w1);
+			Postings list2 = postings(w2);
+			Postings shorter = list1.size() <= list2.size() ? list1 : list2;
+			Postings longer = shorter == list1 ? list2 : list1;
+
+			int j = 0;
+			for(int i = 0; i < shorter.size() && j < longer.size(); i++) {
+				int doc = shorter.doc(i);
+				j = longer.advance(j, doc);
+				if(j < longer.size() && longer.doc(j) == doc) {
+					int rank1 = shorter.freq(i) * rank(doc);
+					int rank2 = longer.freq(j) * rank(doc);
+					if(rank1 > 0 && rank2 > 0 && rank1 + rank2 > 0) {
+						hits.collect(doc, rank1 + rank2);
 					}
 				}
 			}
+		} finally {
+			lock.readLock().unlock();
 		}
-		else {
-			rankedOr.addAll(0, search1);
-			ArrayList<String> search1Urls = getData(search1);
-			for(TaggedVertex<String> url : search2) {
-				if(search1Urls.contains(url.getVertexData())) {
-					int rank2 = url.getTagValue();
-					int rank1 = getRankFromList(url.getVertexData(), search1);
-					if(rank2 + rank1 > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank2 + rank1);
-						rankedOr.remove(getIndex(url.getVertexData(), rankedOr));
-						rankedOr.add(tv);	
-					}
+	}
+
+	/**
+	 * Searches the index for pages containing at least one of the keywords w1 and
+	 * w2. Returns a list of qualifying urls ordered by ranking (largest to
+	 * smallest). The tag value associated with each url is its ranking. The ranking
+	 * for a given page is the number of occurrences of w1 plus number of
+	 * occurrences of w2, all multiplied by the indegree of its url in the
+	 * associated graph. No pages with rank zero are included.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @return ranked list of urls
+	 */
+	public List<TaggedVertex<String>> searchWithOr(String w1, String w2) {
+		RankedHits hits = new RankedHits();
+		searchWithOr(w1, w2, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchWithOr(String, String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchWithOr(String w1, String w2, int k) {
+		return searchWithOr(w1, w2, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchWithOr(String, String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchWithOr(String w1, String w2, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchWithOr(w1, w2, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Merges the posting lists of w1 and w2 into their union.
+	 * @param w1
+	 * @param w2
+	 * @param hits
+	 */
+	private void searchWithOr(String w1, String w2, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			Postings list1 = postings(w1);
+			Postings list2 = postings(w2);
+
+			int i = 0;
+			int j = 0;
+			while(i < list1.size() || j < list2.size()) {
+				int doc1 = i < list1.size() ? list1.doc(i) : Integer.MAX_VALUE;
+				int doc2 = j < list2.size() ? list2.doc(j) : Integer.MAX_VALUE;
+				int doc = Math.min(doc1, doc2);
+				int rank = 0;
+				if(doc1 == doc) {
+					rank += Math.max(0, list1.freq(i++) * rank(doc));
 				}
-				else {
-					int rank = url.getTagValue();
-					if(rank > 0) {
-						TaggedVertex<String> tv = new TaggedVertex<String>(url.getVertexData(), rank);
-						rankedOr.add(tv);	
-					}
+				if(doc2 == doc) {
+					rank += Math.max(0, list2.freq(j++) * rank(doc));
+				}
+				if(rank > 0) {
+					hits.collect(doc, rank);
 				}
 			}
+		} finally {
+			lock.readLock().unlock();
 		}
-		
-		rankedOr.sort(new RankComparator());
-		return rankedOr;
 	}
 
 	/**
@@ -322,22 +1028,841 @@ public class Index {
 	 * @return ranked list of urls
 	 */
 	public List<TaggedVertex<String>> searchAndNot(String w1, String w2) {
-		List<TaggedVertex<String>> rankedNot = new ArrayList<TaggedVertex<String>>();
-		
-		List<TaggedVertex<String>> search1 = search(w1);
-		List<TaggedVertex<String>> search2 = search(w2);
-		
-		ArrayList<String> search2Urls = getData(search2);
-		for(TaggedVertex<String> url : search1) {
-			if(!search2Urls.contains(url.getVertexData())) {
-				if(url.getTagValue() > 0) {
-					rankedNot.add(url);	
+		RankedHits hits = new RankedHits();
+		searchAndNot(w1, w2, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchAndNot(String, String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchAndNot(String w1, String w2, int k) {
+		return searchAndNot(w1, w2, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchAndNot(String, String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchAndNot(String w1, String w2, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchAndNot(w1, w2, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Subtracts the posting list of w2 from that of w1, galloping
+	 * through the list of w2.
+	 * @param w1
+	 * @param w2
+	 * @param hits
+	 */
+	private void searchAndNot(String w1, String w2, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			Postings list1 = postings(w1);
+			Postings list2 = postings(w2);
+
+			int j = 0;
+			for(int i = 0; i < list1.size(); i++) {
+				int doc = list1.doc(i);
+				int rank = list1.freq(i) * rank(doc);
+				if(rank <= 0) {
+					continue;
+				}
+				j = list2.advance(j, doc);
+				if(j < list2.size() && list2.doc(j) == doc && list2.freq(j) * rank(doc) > 0) {
+					continue;
+				}
+				hits.collect(doc, rank);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the index with a boolean expression over keywords, such as
+	 * "(a AND b) OR (c AND NOT d)". Returns a list of qualifying urls ordered
+	 * by ranking (largest to smallest). The ranking for a given page is the sum
+	 * of the occurrences of each keyword that it matches outside a NOT, all
+	 * multiplied by the indegree of its url in the associated graph, so the
+	 * result agrees with searchWithAnd, searchWithOr and searchAndNot for two
+	 * keywords. No pages with rank zero are included.
+	 * 
+	 * @param expression
+	 *            query expression, see {@link QueryParser}
+	 * @return ranked list of urls
+	 * @throws IllegalArgumentException
+	 *            if the expression is malformed
+	 */
+	public List<TaggedVertex<String>> query(String expression) {
+		RankedHits hits = new RankedHits();
+		query(expression, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #query(String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param expression
+	 *            query expression, see {@link QueryParser}
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> query(String expression, int k) {
+		return query(expression, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #query(String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param expression
+	 *            query expression, see {@link QueryParser}
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> query(String expression, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		query(expression, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Plans the given expression and streams its matches to the collector.
+	 * @param expression
+	 * @param hits
+	 */
+	private void query(String expression, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			DocIterator it = QueryParser.parse(expression).plan(this);
+			if(it == null) {
+				return;
+			}
+			for(int doc = it.next(); doc != DocIterator.NO_MORE_DOCS; doc = it.next()) {
+				int rank = it.rank();
+				if(rank > 0) {
+					hits.collect(doc, rank);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches the index for pages containing the given phrase, that is, its
+	 * words at consecutive positions. The phrase is split into words the way
+	 * page text is; a stop word in the phrase matches any single word. The
+	 * ranking for a given page is the number of occurrences of the phrase
+	 * multiplied by the indegree of its url in the associated graph. No pages
+	 * with rank zero are included.
+	 * 
+	 * @param phrase
+	 *            phrase to search for
+	 * @return ranked list of urls
+	 * @throws IllegalStateException
+	 *            if the index was not made in positional mode
+	 */
+	public List<TaggedVertex<String>> searchPhrase(String phrase) {
+		RankedHits hits = new RankedHits();
+		searchPhrase(phrase, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchPhrase(String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param phrase
+	 *            phrase to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchPhrase(String phrase, int k) {
+		return searchPhrase(phrase, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchPhrase(String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param phrase
+	 *            phrase to search for
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchPhrase(String phrase, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchPhrase(phrase, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Intersects the posting lists of the words of the phrase, rarest first,
+	 * and for each common page counts the phrase occurrences in one merge
+	 * pass over the words' positions.
+	 * @param phrase
+	 * @param hits
+	 */
+	private void searchPhrase(String phrase, HitCollector hits) {
+		checkPositional();
+		lock.readLock().lock();
+		try {
+			final List<String> words = new ArrayList<String>();
+			final List<Integer> offsets = new ArrayList<Integer>();
+			new Tokenizer().tokenize(phrase, new Tokenizer.TermSink() {
+				private int position = 0;
+
+				@Override
+				public void term(char[] buffer, int length) {
+					if (!(stopwords.matches(buffer, 0, length))) {
+						words.add(new String(buffer, 0, length));
+						offsets.add(position);
+					}
+					position++;
+				}
+			});
+			int m = words.size();
+			if(m == 0) {
+				return;
+			}
+
+			Postings[] lists = new Postings[m];
+			int[] offset = new int[m];
+			int[] at = new int[m];
+			int[][] positions = new int[m][];
+			int[] counts = new int[m];
+			int rarest = 0;
+			for(int t = 0; t < m; t++) {
+				lists[t] = postings(words.get(t));
+				offset[t] = offsets.get(t);
+				positions[t] = new int[16];
+				if(lists[t].size() < lists[rarest].size()) {
+					rarest = t;
+				}
+			}
+
+			for(int i = 0; i < lists[rarest].size(); i++) {
+				int doc = lists[rarest].doc(i);
+				boolean all = true;
+				for(int t = 0; t < m && all; t++) {
+					at[t] = lists[t].advance(at[t], doc);
+					all = at[t] < lists[t].size() && lists[t].doc(at[t]) == doc;
+				}
+				if(!all) {
+					continue;
+				}
+				for(int t = 0; t < m; t++) {
+					int freq = lists[t].freq(at[t]);
+					if(positions[t].length < freq) {
+						positions[t] = new int[Math.max(freq, positions[t].length * 2)];
+					}
+					counts[t] = lists[t].positions(at[t], positions[t]);
+				}
+				int rank = countPhrase(positions, counts, offset) * rank(doc);
+				if(rank > 0) {
+					hits.collect(doc, rank);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Counts the places where every word t of a phrase occurs at position
+	 * start + offset[t], walking each word's positions once.
+	 * @param positions sorted positions of each word in one page
+	 * @param counts number of positions of each word
+	 * @param offset position of each word within the phrase
+	 * @return number of occurrences of the phrase
+	 */
+	private static int countPhrase(int[][] positions, int[] counts, int[] offset) {
+		int m = positions.length;
+		int[] next = new int[m];
+		int found = 0;
+		outer:
+		for(int a = 0; a < counts[0]; a++) {
+			int start = positions[0][a] - offset[0];
+			for(int t = 1; t < m; t++) {
+				int want = start + offset[t];
+				while(next[t] < counts[t] && positions[t][next[t]] < want) {
+					next[t]++;
+				}
+				if(next[t] == counts[t]) {
+					break outer;
+				}
+				if(positions[t][next[t]] != want) {
+					continue outer;
+				}
+			}
+			found++;
+		}
+		return found;
+	}
+
+	/**
+	 * Searches the index for pages containing keywords w1 and w2 at most
+	 * distance words apart, in either order. Returns a list of qualifying urls
+	 * ordered by ranking (largest to smallest), ranked as by
+	 * {@link #searchWithAnd(String, String)}. No pages with rank zero are
+	 * included.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param distance
+	 *            largest number of positions between the keywords, where
+	 *            1 means adjacent
+	 * @return ranked list of urls
+	 * @throws IllegalStateException
+	 *            if the index was not made in positional mode
+	 */
+	public List<TaggedVertex<String>> searchNear(String w1, String w2, int distance) {
+		RankedHits hits = new RankedHits();
+		searchNear(w1, w2, distance, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchNear(String, String, int)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param distance
+	 *            largest number of positions between the keywords
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchNear(String w1, String w2, int distance, int k) {
+		return searchNear(w1, w2, distance, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchNear(String, String, int)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param w1
+	 *            first keyword to search for
+	 * @param w2
+	 *            second keyword to search for
+	 * @param distance
+	 *            largest number of positions between the keywords
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchNear(String w1, String w2, int distance, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchNear(w1, w2, distance, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Intersects the posting lists of w1 and w2 and keeps the pages where
+	 * some pair of their positions is close enough, found by merging the
+	 * two sorted position lists.
+	 * @param w1
+	 * @param w2
+	 * @param distance
+	 * @param hits
+	 */
+	private void searchNear(String w1, String w2, int distance, HitCollector hits) {
+		checkPositional();
+		lock.readLock().lock();
+		try {
+			Postings list1 = postings(w1);
+			Postings list2 = postings(w2);
+			int[] positions1 = new int[16];
+			int[] positions2 = new int[16];
+
+			int i = 0;
+			int j = 0;
+			while(i < list1.size() && j < list2.size()) {
+				int doc1 = list1.doc(i);
+				int doc2 = list2.doc(j);
+				if(doc1 < doc2) {
+					i = list1.advance(i, doc2);
+				}
+				else if(doc2 < doc1) {
+					j = list2.advance(j, doc1);
+				}
+				else {
+					if(positions1.length < list1.freq(i)) {
+						positions1 = new int[Math.max(list1.freq(i), positions1.length * 2)];
+					}
+					if(positions2.length < list2.freq(j)) {
+						positions2 = new int[Math.max(list2.freq(j), positions2.length * 2)];
+					}
+					int n1 = list1.positions(i, positions1);
+					int n2 = list2.positions(j, positions2);
+					int rank = (list1.freq(i) + list2.freq(j)) * rank(doc1);
+					if(rank > 0 && near(positions1, n1, positions2, n2, distance)) {
+						hits.collect(doc1, rank);
+					}
+					i++;
+					j++;
 				}
 			}
+		} finally {
+			lock.readLock().unlock();
 		}
-		
-		rankedNot.sort(new RankComparator());
-		return rankedNot;
-	}	
+	}
+
+	/**
+	 * Returns true if some position of the first list is at most
+	 * distance away from some position of the second.
+	 * @param p1
+	 * @param n1
+	 * @param p2
+	 * @param n2
+	 * @param distance
+	 * @return true if the lists have positions close enough
+	 */
+	private static boolean near(int[] p1, int n1, int[] p2, int n2, int distance) {
+		int a = 0;
+		int b = 0;
+		while(a < n1 && b < n2) {
+			if(Math.abs(p1[a] - p2[b]) <= distance) {
+				return true;
+			}
+			if(p1[a] < p2[b]) {
+				a++;
+			}
+			else {
+				b++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Throws IllegalStateException unless this index keeps positions.
+	 */
+	private void checkPositional() {
+		if(segment != null || !buffer.isPositional()) {
+			throw new IllegalStateException("Index was not made in positional mode");
+		}
+	}
 
+	/**
+	 * Searches the index for pages containing any keyword that starts with
+	 * the given prefix. Returns a list of qualifying urls ordered by ranking
+	 * (largest to smallest). The ranking for a given page is the sum of the
+	 * occurrences of every matching keyword, multiplied by the indegree of
+	 * its url in the associated graph, as with searchWithOr. No pages with
+	 * rank zero are included.
+	 * 
+	 * @param prefix
+	 *            start of the keywords to search for
+	 * @return ranked list of urls
+	 */
+	public List<TaggedVertex<String>> searchPrefix(String prefix) {
+		RankedHits hits = new RankedHits();
+		searchPrefix(prefix, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchPrefix(String)}
+	 * without sorting the full result list.
+	 * 
+	 * @param prefix
+	 *            start of the keywords to search for
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchPrefix(String prefix, int k) {
+		return searchPrefix(prefix, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchPrefix(String)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param prefix
+	 *            start of the keywords to search for
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchPrefix(String prefix, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchPrefix(prefix, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Searches the index for pages containing any keyword within maxEdits
+	 * insertions, deletions or substitutions of w, so that a misspelled
+	 * keyword still finds pages. Results are ranked as by
+	 * {@link #searchPrefix(String)}.
+	 * 
+	 * @param w
+	 *            keyword to search for
+	 * @param maxEdits
+	 *            largest edit distance, from 0 to 2
+	 * @return ranked list of urls
+	 */
+	public List<TaggedVertex<String>> searchFuzzy(String w, int maxEdits) {
+		RankedHits hits = new RankedHits();
+		searchFuzzy(w, maxEdits, hits);
+		return hits.ranked();
+	}
+
+	/**
+	 * Returns the k best results of {@link #searchFuzzy(String, int)}
+	 * without sorting the full result list.
+	 * 
+	 * @param w
+	 *            keyword to search for
+	 * @param maxEdits
+	 *            largest edit distance, from 0 to 2
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchFuzzy(String w, int maxEdits, int k) {
+		return searchFuzzy(w, maxEdits, 0, k);
+	}
+
+	/**
+	 * Returns one page of the results of {@link #searchFuzzy(String, int)}:
+	 * the results at positions offset to offset + k - 1 of the full ranked
+	 * list, found with a bounded heap instead of a full sort.
+	 * 
+	 * @param w
+	 *            keyword to search for
+	 * @param maxEdits
+	 *            largest edit distance, from 0 to 2
+	 * @param offset
+	 *            number of leading results to skip
+	 * @param k
+	 *            maximum number of results
+	 * @return ranked list of at most k urls
+	 */
+	public List<TaggedVertex<String>> searchFuzzy(String w, int maxEdits, int offset, int k) {
+		TopHits hits = topHits(offset, k);
+		searchFuzzy(w, maxEdits, hits);
+		return page(hits, offset);
+	}
+
+	/**
+	 * Expands the prefix into the keywords that start with it and
+	 * searches for all of them.
+	 * @param prefix
+	 * @param hits
+	 */
+	private void searchPrefix(final String prefix, HitCollector hits) {
+		lock.readLock().lock();
+		try {
+			searchTerms(keywords(new LexiconQuery() {
+				@Override
+				public List<String> find(TermLexicon lexicon) {
+					return lexicon.prefix(prefix, Integer.MAX_VALUE);
+				}
+			}), hits);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Expands w into the keywords within maxEdits of it and
+	 * searches for all of them.
+	 * @param w
+	 * @param maxEdits
+	 * @param hits
+	 */
+	private void searchFuzzy(final String w, final int maxEdits, HitCollector hits) {
+		if(maxEdits < 0 || maxEdits > 2) {
+			throw new IllegalArgumentException("maxEdits must be from 0 to 2");
+		}
+		lock.readLock().lock();
+		try {
+			searchTerms(keywords(new LexiconQuery() {
+				@Override
+				public List<String> find(TermLexicon lexicon) {
+					return lexicon.fuzzy(w, maxEdits);
+				}
+			}), hits);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Passes every page containing any of the given keywords to the
+	 * collector, with the summed rank of the keywords it contains. The
+	 * posting lists are merged in doc id order through a min-heap of their
+	 * current postings, so the cost is the number of postings times the log
+	 * of the number of keywords, with no per-document memory.
+	 * @param keywords
+	 * @param hits
+	 */
+	private void searchTerms(List<String> keywords, HitCollector hits) {
+		Postings[] lists = new Postings[keywords.size()];
+		int m = 0;
+		for(String w : keywords) {
+			Postings list = postings(w);
+			if(list.size() > 0) {
+				lists[m++] = list;
+			}
+		}
+		int[] at = new int[m];
+		// indices of the lists with postings left, by doc id of their current posting
+		int[] heap = new int[m];
+		for(int t = 0; t < m; t++) {
+			heap[t] = t;
+		}
+		int size = m;
+		for(int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(heap, size, i, lists, at);
+		}
+		while(size > 0) {
+			int doc = lists[heap[0]].doc(at[heap[0]]);
+			int freq = 0;
+			while(size > 0 && lists[heap[0]].doc(at[heap[0]]) == doc) {
+				int t = heap[0];
+				freq += lists[t].freq(at[t]);
+				if(++at[t] == lists[t].size()) {
+					heap[0] = heap[--size];
+				}
+				if(size > 0) {
+					siftDown(heap, size, 0, lists, at);
+				}
+			}
+			int rank = freq * rank(doc);
+			if(rank > 0) {
+				hits.collect(doc, rank);
+			}
+		}
+	}
+
+	/**
+	 * Moves the i-th entry of a heap of list indices down until no child
+	 * has a smaller current doc id.
+	 * @param heap
+	 * @param size number of entries in the heap
+	 * @param i
+	 * @param lists
+	 * @param at current posting of each list
+	 */
+	private static void siftDown(int[] heap, int size, int i, Postings[] lists, int[] at) {
+		int t = heap[i];
+		int doc = lists[t].doc(at[t]);
+		while(true) {
+			int child = 2 * i + 1;
+			if(child >= size) {
+				break;
+			}
+			int childDoc = lists[heap[child]].doc(at[heap[child]]);
+			if(child + 1 < size) {
+				int rightDoc = lists[heap[child + 1]].doc(at[heap[child + 1]]);
+				if(rightDoc < childDoc) {
+					child++;
+					childDoc = rightDoc;
+				}
+			}
+			if(childDoc >= doc) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = t;
+	}
+
+	/**
+	 * Returns the distinct keywords of the index that the given query finds
+	 * in the lexicon of any segment or of the buffer. Segments never change,
+	 * so each keeps its lexicon once built, and a change to the index only
+	 * makes the lexicon of the small buffer be built again.
+	 * Called with the read lock held.
+	 * @param query
+	 * @return matching keywords
+	 */
+	private List<String> keywords(LexiconQuery query) {
+		if(segment != null) {
+			TermLexicon lex = lexicon;
+			if(lex == null) {
+				List<String> keywords = new ArrayList<String>(segment.termCount());
+				for(int i = 0; i < segment.termCount(); i++) {
+					keywords.add(segment.term(i));
+				}
+				lex = new TermLexicon(keywords);
+				lexicon = lex;
+			}
+			return query.find(lex);
+		}
+		LinkedHashSet<String> found = new LinkedHashSet<String>();
+		for(Segment s : segments) {
+			found.addAll(query.find(s.lexicon()));
+		}
+		TermLexicon lex = bufferLexicon;
+		if(lex == null) {
+			lex = lexicon(buffer);
+			bufferLexicon = lex;
+		}
+		found.addAll(query.find(lex));
+		return new ArrayList<String>(found);
+	}
+
+	/**
+	 * Returns a sorted lexicon of the terms of the given dictionary.
+	 * @param dict
+	 * @return lexicon of the terms
+	 */
+	private static TermLexicon lexicon(TermDictionary dict) {
+		List<String> terms = new ArrayList<String>(dict.size());
+		for(int i = 0; i < dict.size(); i++) {
+			terms.add(dict.term(i));
+		}
+		return new TermLexicon(terms);
+	}
+
+	/**
+	 * Returns a collector for the best offset + k hits.
+	 * @param offset
+	 * @param k
+	 * @return bounded collector
+	 */
+	private TopHits topHits(int offset, int k) {
+		if(offset < 0 || k < 0) {
+			throw new IllegalArgumentException("offset and k must not be negative");
+		}
+		// there can never be more hits than documents
+		lock.readLock().lock();
+		try {
+			return new TopHits((int) Math.min((long) offset + k, docCount()));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the hits of the given collector after the first offset.
+	 * @param hits
+	 * @param offset
+	 * @return ranked list of urls
+	 */
+	private List<TaggedVertex<String>> page(TopHits hits, int offset) {
+		int n = hits.finish();
+		List<TaggedVertex<String>> ranked = new ArrayList<TaggedVertex<String>>(Math.max(0, n - offset));
+		lock.readLock().lock();
+		try {
+			for(int i = offset; i < n; i++) {
+				ranked.add(new TaggedVertex<String>(url(hits.doc(i)), hits.rank(i)));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return ranked;
+	}
+
+	/**
+	 * Collects hits into a list of urls sorted by ranking. Hits arrive in doc
+	 * id order and the sort is stable, so equal ranks stay in doc id order.
+	 */
+	private class RankedHits implements HitCollector {
+		private List<TaggedVertex<String>> ranked = new ArrayList<TaggedVertex<String>>();
+
+		@Override
+		public void collect(int doc, int rank) {
+			ranked.add(new TaggedVertex<String>(url(doc), rank));
+		}
+
+		/**
+		 * Returns the collected hits, largest rank first.
+		 * @return ranked list of urls
+		 */
+		List<TaggedVertex<String>> ranked() {
+			ranked.sort(new RankComparator());
+			return ranked;
+		}
+	}
+
+	/**
+	 * Dictionary of the postings of the doc ids from (inclusive) to
+	 * to (exclusive). It is not changed once made.
+	 */
+	private static class Segment {
+		final TermDictionary terms;
+		final int from;
+		final int to;
+		volatile TermLexicon lexicon;
+
+		Segment(TermDictionary terms, int from, int to) {
+			this.terms = terms;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the sorted lexicon of the terms of this segment,
+		 * building it on first use.
+		 * @return term lexicon
+		 */
+		TermLexicon lexicon() {
+			TermLexicon lex = lexicon;
+			if(lex == null) {
+				lex = Index.lexicon(terms);
+				lexicon = lex;
+			}
+			return lex;
+		}
+	}
+
+	/**
+	 * Finds keywords in a lexicon, such as those starting with a prefix.
+	 */
+	private interface LexiconQuery {
+		List<String> find(TermLexicon lexicon);
+	}
 }
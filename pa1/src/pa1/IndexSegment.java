@@ -0,0 +1,409 @@
+package pa1;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable on-disk form of an index: the url and rank of every document,
+ * a sorted term dictionary, and the posting list of every term with doc ids
+ * delta-encoded and written, together with the frequencies, as varints.
+ * An opened segment is memory-mapped and answers lookups directly from the
+ * mapped buffer; only the posting list of a queried term is decoded.
+ * <p>
+ * The file is laid out as follows, with all fixed-size numbers big-endian:
+ * <pre>
+ *   int magic, int version, int docCount, int termCount
+ *   long urlBytes, long termBytes, long postingBytes
+ *   int[docCount + 1]  url offsets into the url bytes
+ *   int[docCount]      ranks
+ *   int[termCount + 1] term offsets into the term bytes, terms sorted
+ *   long[termCount + 1] posting offsets into the posting bytes
+ *   int[termCount]     document frequencies
+ *   url bytes, term bytes (UTF-8), posting bytes
+ * </pre>
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class IndexSegment {
+	private static final int MAGIC = 0x49445831; // "IDX1"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * 4 + 3 * 8;
+
+	private final ByteBuffer buffer;
+	private final int docCount;
+	private final int termCount;
+	private final int urlOffsetsPos;
+	private final int ranksPos;
+	private final int termOffsetsPos;
+	private final int postingOffsetsPos;
+	private final int docFreqsPos;
+	private final int urlBytesPos;
+	private final int termBytesPos;
+	private final int postingsPos;
+
+	/**
+	 * Constructs a segment over the given buffer, which holds
+	 * a complete segment file starting at position 0.
+	 * @param buffer
+	 * @throws IOException if the buffer does not hold a segment
+	 */
+	private IndexSegment(ByteBuffer buffer) throws IOException {
+		if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an index segment file");
+		}
+		if(buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported index segment version " + buffer.getInt(4));
+		}
+		this.buffer = buffer;
+		docCount = buffer.getInt(8);
+		termCount = buffer.getInt(12);
+		long urlBytes = buffer.getLong(16);
+		long termBytes = buffer.getLong(24);
+		long postingBytes = buffer.getLong(32);
+
+		urlOffsetsPos = HEADER_SIZE;
+		ranksPos = urlOffsetsPos + 4 * (docCount + 1);
+		termOffsetsPos = ranksPos + 4 * docCount;
+		postingOffsetsPos = termOffsetsPos + 4 * (termCount + 1);
+		docFreqsPos = postingOffsetsPos + 8 * (termCount + 1);
+		urlBytesPos = docFreqsPos + 4 * termCount;
+		termBytesPos = (int) (urlBytesPos + urlBytes);
+		postingsPos = (int) (termBytesPos + termBytes);
+		if(postingsPos + postingBytes != buffer.capacity()) {
+			throw new IOException("Index segment file is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * Memory-maps the segment in the given file.
+	 * @param file
+	 * @return opened segment
+	 * @throws IOException if the file cannot be read or is not a segment
+	 */
+	static IndexSegment open(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Index segment file is larger than 2 GB: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new IndexSegment(buffer);
+		}
+	}
+
+	/**
+	 * Writes a copy of this segment to the given file. The copy is written
+	 * to a temporary file that then replaces the given one, so the file
+	 * this segment was opened from may be given.
+	 * @param file
+	 * @throws IOException
+	 */
+	void copyTo(File file) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try(FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer bytes = buffer.duplicate();
+			bytes.clear();
+			while(bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Writes a segment holding the given documents and terms to a file.
+	 * @param file
+	 * @param urls url of each doc id
+	 * @param ranks rank of each doc id
+	 * @param terms term dictionary with postings over those doc ids
+	 * @throws IOException
+	 */
+	static void write(File file, List<String> urls, int[] ranks, TermDictionary terms) throws IOException {
+		int docCount = urls.size();
+		int termCount = terms.size();
+
+		byte[][] urlBytes = new byte[docCount][];
+		long urlLength = 0;
+		for(int i = 0; i < docCount; i++) {
+			urlBytes[i] = urls.get(i).getBytes(StandardCharsets.UTF_8);
+			urlLength += urlBytes[i].length;
+		}
+
+		// terms are written in sorted order; ids maps each position to a term id
+		Integer[] ids = new Integer[termCount];
+		byte[][] termBytes = new byte[termCount][];
+		for(int i = 0; i < termCount; i++) {
+			ids[i] = i;
+			termBytes[i] = terms.term(i).getBytes(StandardCharsets.UTF_8);
+		}
+		final byte[][] keys = termBytes;
+		Arrays.sort(ids, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return IndexSegment.compare(keys[a], keys[b]);
+			}
+		});
+
+		long termLength = 0;
+		long[] postingOffsets = new long[termCount + 1];
+		for(int i = 0; i < termCount; i++) {
+			termLength += termBytes[ids[i]].length;
+			postingOffsets[i + 1] = postingOffsets[i] + encodedSize(terms.postings(ids[i]));
+		}
+		if(HEADER_SIZE + 12L * docCount + 16L * termCount + 16 + urlLength + termLength + postingOffsets[termCount] > Integer.MAX_VALUE) {
+			throw new IOException("Index is too large for a single segment file");
+		}
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(docCount);
+			out.writeInt(termCount);
+			out.writeLong(urlLength);
+			out.writeLong(termLength);
+			out.writeLong(postingOffsets[termCount]);
+
+			int offset = 0;
+			out.writeInt(offset);
+			for(byte[] url : urlBytes) {
+				offset += url.length;
+				out.writeInt(offset);
+			}
+			for(int i = 0; i < docCount; i++) {
+				out.writeInt(ranks[i]);
+			}
+			offset = 0;
+			out.writeInt(offset);
+			for(int i = 0; i < termCount; i++) {
+				offset += termBytes[ids[i]].length;
+				out.writeInt(offset);
+			}
+			for(long postingOffset : postingOffsets) {
+				out.writeLong(postingOffset);
+			}
+			for(int i = 0; i < termCount; i++) {
+				out.writeInt(terms.postings(ids[i]).size());
+			}
+
+			for(byte[] url : urlBytes) {
+				out.write(url);
+			}
+			for(int i = 0; i < termCount; i++) {
+				out.write(termBytes[ids[i]]);
+			}
+			for(int i = 0; i < termCount; i++) {
+				PostingList list = terms.postings(ids[i]);
+				int prev = 0;
+				for(int j = 0; j < list.size(); j++) {
+					writeVarint(out, list.doc(j) - prev);
+					writeVarint(out, list.freq(j));
+					prev = list.doc(j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of documents in this segment.
+	 * @return number of documents
+	 */
+	int docCount() {
+		return docCount;
+	}
+
+	/**
+	 * Returns the number of terms in this segment.
+	 * @return number of terms
+	 */
+	int termCount() {
+		return termCount;
+	}
+
+	/**
+	 * Returns the url of the document with the given doc id.
+	 * @param doc
+	 * @return url
+	 */
+	String url(int doc) {
+		int start = buffer.getInt(urlOffsetsPos + 4 * doc);
+		int end = buffer.getInt(urlOffsetsPos + 4 * (doc + 1));
+		return decode(urlBytesPos + start, end - start);
+	}
+
+	/**
+	 * Returns the rank of the document with the given doc id.
+	 * @param doc
+	 * @return rank
+	 */
+	int rank(int doc) {
+		return buffer.getInt(ranksPos + 4 * doc);
+	}
+
+	/**
+	 * Returns the term at the given position in sorted order.
+	 * @param i
+	 * @return term
+	 */
+	String term(int i) {
+		int start = buffer.getInt(termOffsetsPos + 4 * i);
+		int end = buffer.getInt(termOffsetsPos + 4 * (i + 1));
+		return decode(termBytesPos + start, end - start);
+	}
+
+	/**
+	 * Decodes the posting list of the given term from the mapped buffer.
+	 * @param term
+	 * @return posting list, empty if the term is not in this segment
+	 */
+	PostingList postings(String term) {
+		int i = find(term.getBytes(StandardCharsets.UTF_8));
+		return i < 0 ? PostingList.EMPTY : postings(i);
+	}
+
+	/**
+	 * Decodes the posting list of the term at the given position.
+	 * @param i
+	 * @return posting list
+	 */
+	PostingList postings(int i) {
+		int df = buffer.getInt(docFreqsPos + 4 * i);
+		int pos = (int) (postingsPos + buffer.getLong(postingOffsetsPos + 8 * i));
+		PostingList list = new PostingList(df);
+		int doc = 0;
+		for(int j = 0; j < df; j++) {
+			int delta = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get(pos++);
+				delta |= (b & 0x7f) << shift;
+				shift += 7;
+			} while(b < 0);
+			int freq = 0;
+			shift = 0;
+			do {
+				b = buffer.get(pos++);
+				freq |= (b & 0x7f) << shift;
+				shift += 7;
+			} while(b < 0);
+			doc += delta;
+			list.append(doc, freq);
+		}
+		return list;
+	}
+
+	/**
+	 * Binary searches the sorted term table for the given term.
+	 * @param key UTF-8 bytes of the term
+	 * @return position of the term, or -1 if it is not present
+	 */
+	private int find(byte[] key) {
+		int lo = 0;
+		int hi = termCount - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int start = termBytesPos + buffer.getInt(termOffsetsPos + 4 * mid);
+			int end = termBytesPos + buffer.getInt(termOffsetsPos + 4 * (mid + 1));
+			int cmp = compare(start, end, key);
+			if(cmp < 0) {
+				lo = mid + 1;
+			}
+			else if(cmp > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compares the bytes of the buffer from start to end with the given key
+	 * as unsigned byte strings.
+	 */
+	private int compare(int start, int end, byte[] key) {
+		int n = Math.min(end - start, key.length);
+		for(int i = 0; i < n; i++) {
+			int cmp = (buffer.get(start + i) & 0xff) - (key[i] & 0xff);
+			if(cmp != 0) {
+				return cmp;
+			}
+		}
+		return (end - start) - key.length;
+	}
+
+	/**
+	 * Compares two byte arrays as unsigned byte strings.
+	 */
+	private static int compare(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for(int i = 0; i < n; i++) {
+			int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+			if(cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	/**
+	 * Decodes a UTF-8 string from the given range of the buffer.
+	 */
+	private String decode(int start, int length) {
+		byte[] bytes = new byte[length];
+		for(int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of bytes the given posting list takes when encoded.
+	 */
+	private static long encodedSize(PostingList list) {
+		long size = 0;
+		int prev = 0;
+		for(int j = 0; j < list.size(); j++) {
+			size += varintSize(list.doc(j) - prev) + varintSize(list.freq(j));
+			prev = list.doc(j);
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes of the varint encoding of value.
+	 */
+	private static int varintSize(int value) {
+		int size = 1;
+		while((value & ~0x7f) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	/**
+	 * Writes value as an unsigned varint, seven bits per byte,
+	 * least significant group first.
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+}
@@ -0,0 +1,121 @@
+package pa1;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import api.Util;
+
+/**
+ * Applies the rule of {@link Util#ignoreLink} to the links of one page.
+ * The page url is parsed once, when the filter is created, instead of
+ * once per link. Links are checked by scanning the string in place: a
+ * link of the common form "http://host[:port]/path[?query][#fragment]",
+ * with a host of letters, digits, dots and hyphens and a path without
+ * dot segments, is checked without allocating anything. Any other link
+ * is passed to Util.ignoreLink, so the result is always the same as
+ * Util.ignoreLink(page, link).
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class LinkFilter {
+	private final String page;
+	private final String host;
+	private final String path;
+
+	/**
+	 * Constructs a filter for the links of the given page.
+	 * @param page url of the page the links occur on
+	 */
+	public LinkFilter(String page) {
+		this.page = page;
+		String h = null;
+		String p = null;
+		try {
+			URL u = new URL(page);
+			h = u.getHost();
+			p = u.getPath();
+		} catch (MalformedURLException e) {
+			// every link is ignored, as Util.ignoreLink does
+		}
+		this.host = h;
+		this.path = p;
+	}
+
+	/**
+	 * Returns true if the given link on this filter's page should
+	 * be ignored in constructing the graph.
+	 * @param link
+	 * @return Util.ignoreLink(page, link)
+	 */
+	public boolean ignore(String link) {
+		if(host == null) {
+			return true;
+		}
+
+		int n = link.length();
+		int i;
+		if(link.startsWith("http://")) {
+			i = 7;
+		}
+		else if(link.startsWith("https://")) {
+			i = 8;
+		}
+		else {
+			return Util.ignoreLink(page, link);
+		}
+		if(link.charAt(n - 1) <= ' ') {
+			return Util.ignoreLink(page, link);
+		}
+
+		// authority: host, then an optional port of at most 5 digits
+		int hostStart = i;
+		while(i < n && isHostChar(link.charAt(i))) {
+			i++;
+		}
+		int hostEnd = i;
+		if(i < n && link.charAt(i) == ':') {
+			int portStart = ++i;
+			while(i < n && link.charAt(i) >= '0' && link.charAt(i) <= '9') {
+				i++;
+			}
+			if(i - portStart > 5) {
+				return Util.ignoreLink(page, link);
+			}
+		}
+		if(i < n && link.charAt(i) != '/' && link.charAt(i) != '?' && link.charAt(i) != '#') {
+			return Util.ignoreLink(page, link);
+		}
+
+		// path: up to the query or fragment
+		int pathStart = i;
+		boolean colon = false;
+		if(i < n && link.charAt(i) == '/') {
+			while(i < n) {
+				char c = link.charAt(i);
+				if(c == '?' || c == '#') {
+					break;
+				}
+				if(c == ':') {
+					colon = true;
+				}
+				else if(c == '.' && link.charAt(i - 1) == '/') {
+					// dot segments are resolved by URL
+					return Util.ignoreLink(page, link);
+				}
+				i++;
+			}
+		}
+		int pathEnd = i;
+
+		if(hostEnd - hostStart == host.length() && pathEnd - pathStart == path.length()
+				&& link.regionMatches(hostStart, host, 0, host.length())
+				&& link.regionMatches(pathStart, path, 0, path.length())) {
+			return true;
+		}
+		return colon;
+	}
+
+	private static boolean isHostChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-';
+	}
+}
@@ -1,6 +1,8 @@
 package pa1;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -18,6 +20,10 @@ import api.TaggedVertex;
 public class MyGraph<E> implements Graph<E> {
 	private HashMap<E, LinkedList<E>> adjList = new HashMap<E, LinkedList<E>>();
 	private HashMap<E, Integer> indices = new HashMap<>();
+	private ArrayList<E> vertices = new ArrayList<E>();
+	private List<E> vertexView = Collections.unmodifiableList(vertices);
+	private int[][] inEdges = new int[16][];
+	private int[] inDegree = new int[16];
 	private int index = 0;
 	private E seed;
 
@@ -30,12 +36,15 @@ public class MyGraph<E> implements Graph<E> {
 			LinkedList<E> list = new LinkedList<>();
 			adjList.put(vertex, list);
 			indices.put(vertex, index);
+			this.vertices.add(vertex);
 			index++;
 		}
 	}
 	
 	/**
-	 * Returns this graph's adjacency list
+	 * Returns this graph's adjacency list. New vertices should be
+	 * added through addVertex() rather than through this map so that
+	 * the index tables stay in sync.
 	 * @return adjacency list of graph class
 	 */
 	public HashMap<E, LinkedList<E>> getAdjList() {
@@ -50,6 +59,25 @@ public class MyGraph<E> implements Graph<E> {
 		return indices;
 	}
 
+	/**
+	 * Adds a vertex with no edges, giving it the next free index.
+	 * Does nothing if the vertex is already in the graph.
+	 * @param vertex
+	 * @return index of the vertex
+	 */
+	public int addVertex(E vertex) {
+		Integer existing = indices.get(vertex);
+		if(existing != null) {
+			return existing;
+		}
+		int i = indices.size();
+		adjList.put(vertex, new LinkedList<E>());
+		indices.put(vertex, i);
+		vertices.add(vertex);
+		index = i + 1;
+		return i;
+	}
+
 	/**
 	 * Adds an edge between source and destination.
 	 * Also performs various error checking to make sure
@@ -57,11 +85,12 @@ public class MyGraph<E> implements Graph<E> {
 	 * appropriate graph.
 	 * @param source
 	 * @param destination
+	 * @return true if the edge was added
 	 */
-	public void addEdge(E source, E destination) {
+	public boolean addEdge(E source, E destination) {
 		if(source.equals(destination)) {
 			System.out.println("Error: The source and destination vertices can not have the same data!");
-			return;
+			return false;
 		}
 		
 		LinkedList<E> list;
@@ -69,11 +98,51 @@ public class MyGraph<E> implements Graph<E> {
 		list = adjList.get(source);
 		if(list.contains(destination)) {
 			System.out.println("Error: There must be zero duplicate edges in an adjacency list!");
-			return;
+			return false;
 		}
 		
 		list.addFirst(destination);
 		adjList.put(source, list);
+
+		int from = indices.get(source);
+		int to = indices.get(destination);
+		ensureCapacity(Math.max(from, to) + 1);
+		int[] in = inEdges[to];
+		if(in == null) {
+			in = new int[4];
+		}
+		else if(inDegree[to] == in.length) {
+			in = Arrays.copyOf(in, in.length * 2);
+		}
+		in[inDegree[to]++] = from;
+		inEdges[to] = in;
+		return true;
+	}
+
+	/**
+	 * Grows the reverse adjacency arrays so that they can
+	 * hold at least the given number of vertices.
+	 * @param vertices
+	 */
+	private void ensureCapacity(int vertices) {
+		if(vertices > inDegree.length) {
+			int size = Math.max(vertices, inDegree.length * 2);
+			inEdges = Arrays.copyOf(inEdges, size);
+			inDegree = Arrays.copyOf(inDegree, size);
+		}
+	}
+
+	/**
+	 * Returns the number of incoming edges of the vertex
+	 * with the given index.
+	 * @param index
+	 * @return in-degree of vertex
+	 */
+	public int getInDegree(int index) {
+		if(index < 0 || index >= indices.size()) {
+			throw new ArrayIndexOutOfBoundsException("");
+		}
+		return index < inDegree.length ? inDegree[index] : 0;
 	}
 
 	/**
@@ -146,15 +215,17 @@ public class MyGraph<E> implements Graph<E> {
 	   */
 	@Override
 	public ArrayList<E> vertexData() {
-		ArrayList<E> keyArr = new ArrayList<E>();
-		E v = null;
-		
-		for(int i = 0; i < adjList.size(); i++) {
-			v = getKeyFromValue(i);
-			keyArr.add(v);
-		}
+		return new ArrayList<E>(vertices);
+	}
 
-		return keyArr;
+	/**
+	 * Returns a read-only view of the vertices of this graph, in
+	 * index order. Unlike vertexData(), no list is copied; the view
+	 * reflects vertices added later.
+	 * @return unmodifiable list of objects in the graph
+	 */
+	public List<E> vertexView() {
+		return vertexView;
 	}
 
 	/**
@@ -165,20 +236,14 @@ public class MyGraph<E> implements Graph<E> {
 	   */
 	@Override
 	public ArrayList<TaggedVertex<E>> vertexDataWithIncomingCounts() {
-		ArrayList<TaggedVertex<E>> taggedArr = new ArrayList<TaggedVertex<E>>();
-		TaggedVertex<E> tv = null;
-		E v = null;
-		
-		for(int i = 0; i < adjList.size(); i++) {
-			v = getKeyFromValue(i);
+		ArrayList<TaggedVertex<E>> taggedArr = new ArrayList<TaggedVertex<E>>(vertices.size());
+		for(int i = 0; i < vertices.size(); i++) {
+			E v = vertices.get(i);
+			int count = getInDegree(i);
 			if(v.equals(seed)) {
-				tv = new TaggedVertex<E>(v, getIncoming(indices.get(v)).size() + 1);
-			}
-			else {
-				tv = new TaggedVertex<E>(v, getIncoming(indices.get(v)).size());	
+				count++;
 			}
-			taggedArr.add(tv);
-			
+			taggedArr.add(new TaggedVertex<E>(v, count));
 		}
 		
 		return taggedArr;
@@ -191,13 +256,10 @@ public class MyGraph<E> implements Graph<E> {
 	 * @return key that matches given index value.
 	 */
 	public E getKeyFromValue(int index) {
-		for(E key : indices.keySet()) {
-			if(indices.get(key).equals(index)) {
-				return key;
-			}
+		if(index < 0 || index >= vertices.size()) {
+			return null;
 		}
-
-		return null;
+		return vertices.get(index);
 	}
 
 	/**
@@ -216,10 +278,8 @@ public class MyGraph<E> implements Graph<E> {
 			throw new ArrayIndexOutOfBoundsException("");
 		}
 		
-		List<Integer> nList = new ArrayList<Integer>();
-		E v = getKeyFromValue(index);
-
-		LinkedList<E> neighbors = adjList.get(v);
+		LinkedList<E> neighbors = adjList.get(vertices.get(index));
+		List<Integer> nList = new ArrayList<Integer>(neighbors.size());
 
 		for(E n : neighbors) {
 			nList.add(indices.get(n));
@@ -244,13 +304,10 @@ public class MyGraph<E> implements Graph<E> {
 			throw new ArrayIndexOutOfBoundsException("");
 		}
 		
-		E v = getKeyFromValue(index);
-		List<Integer> inList = new ArrayList<Integer>();
-		
-		for(Map.Entry<E, LinkedList<E>> entry : adjList.entrySet()) {
-			if(entry.getValue().contains(v)) {
-				inList.add(indices.get(entry.getKey()));
-			}
+		int count = getInDegree(index);
+		List<Integer> inList = new ArrayList<Integer>(count);
+		for(int i = 0; i < count; i++) {
+			inList.add(inEdges[index][i]);
 		}
 		
 		return inList;
@@ -265,5 +322,24 @@ public class MyGraph<E> implements Graph<E> {
 	public int getIndex(E node) {
 		return indices.get(node);
 	}
-	
+
+	/**
+	 * Returns an immutable compact copy of this graph with the same
+	 * vertex indices and neighbor order. Later changes to this graph
+	 * are not reflected in the copy.
+	 * @return frozen copy of this graph
+	 */
+	public CompactGraph<E> freeze() {
+		CompactGraph.Builder<E> builder = new CompactGraph.Builder<E>();
+		for(E v : vertices) {
+			builder.addVertex(v);
+		}
+		for(int i = 0; i < vertices.size(); i++) {
+			for(E n : adjList.get(vertices.get(i))) {
+				builder.addEdge(i, indices.get(n));
+			}
+		}
+		return builder.build();
+	}
+
 }
@@ -0,0 +1,313 @@
+package pa1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import api.Graph;
+import api.TaggedVertex;
+
+/**
+ * Iterative PageRank over any {@link Graph}. Each iteration gives every
+ * vertex (1 - d) / n plus d times the sum, over its incoming edges, of the
+ * source's rank divided by the source's out-degree, where d is the damping
+ * factor; the rank of vertices without outgoing edges is spread evenly over
+ * all vertices. Iteration stops when the ranks change by less than the
+ * tolerance in total, or after the maximum number of iterations.
+ * <p>
+ * The in-edges are copied once into primitive arrays, and each iteration
+ * works on double[] vectors. With more than one thread the vertices are
+ * split into ranges with about the same number of in-edges, which are
+ * updated in parallel.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class PageRank {
+	private double damping = 0.85;
+	private double tolerance = 1e-6;
+	private int maxIterations = 100;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int scale = 100;
+	private int iterations;
+
+	/**
+	 * Sets the damping factor, the probability of following a link
+	 * rather than jumping to a random page. The default is 0.85.
+	 * @param damping
+	 */
+	public void setDamping(double damping) {
+		if(!(damping >= 0 && damping < 1)) {
+			throw new IllegalArgumentException("damping must be at least 0 and less than 1");
+		}
+		this.damping = damping;
+	}
+
+	/**
+	 * Sets the total change in rank, summed over all vertices, below
+	 * which the ranks are considered converged. The default is 1e-6.
+	 * @param tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if(!(tolerance > 0)) {
+			throw new IllegalArgumentException("tolerance must be positive");
+		}
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Sets the maximum number of iterations. The default is 100.
+	 * @param maxIterations
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if(maxIterations < 1) {
+			throw new IllegalArgumentException("maxIterations must be at least 1");
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Sets the number of threads each iteration is split across.
+	 * The default is the number of available processors.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the tag value that {@link #rank(Graph)} gives a vertex of average
+	 * rank. The default is 100.
+	 * @param scale
+	 */
+	public void setScale(int scale) {
+		if(scale < 1) {
+			throw new IllegalArgumentException("scale must be at least 1");
+		}
+		this.scale = scale;
+	}
+
+	/**
+	 * Returns the number of iterations the most recent computation took.
+	 * @return number of iterations
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Computes the PageRank of every vertex of the given graph.
+	 * @param graph
+	 * @return rank of each vertex, indexed like vertexData(), summing to 1
+	 * @throws IllegalStateException if the thread is interrupted before the
+	 *         iterations finish; the interrupt status is kept
+	 */
+	public <E> double[] compute(Graph<E> graph) {
+		int n = graph.vertexData().size();
+		iterations = 0;
+		if(n == 0) {
+			return new double[0];
+		}
+
+		// copy the in-edges into CSR arrays and count out-degrees
+		int[] inOffsets = new int[n + 1];
+		int[] inSources = new int[16];
+		int[] outDegree = new int[n];
+		CompactGraph<E> compact = graph instanceof CompactGraph ? (CompactGraph<E>) graph : null;
+		int edges = 0;
+		for(int i = 0; i < n; i++) {
+			List<Integer> incoming = compact == null ? graph.getIncoming(i) : null;
+			int degree = compact == null ? incoming.size() : compact.inDegree(i);
+			if(edges + degree > inSources.length) {
+				inSources = Arrays.copyOf(inSources, Math.max(edges + degree, inSources.length * 2));
+			}
+			for(int k = 0; k < degree; k++) {
+				int source = compact == null ? incoming.get(k) : compact.incoming(i, k);
+				inSources[edges++] = source;
+				outDegree[source]++;
+			}
+			inOffsets[i + 1] = edges;
+		}
+
+		Iteration it = new Iteration(n, inOffsets, inSources, outDegree, damping);
+		int chunks = Math.min(threads, n);
+		List<Iteration.Range> tasks = new ArrayList<Iteration.Range>(chunks);
+		int from = 0;
+		for(int c = 1; c <= chunks; c++) {
+			// split where the in-edge count reaches c / chunks of the total
+			int to = from;
+			long target = (long) edges * c / chunks;
+			while(to < n && (inOffsets[to] < target || to == from)) {
+				to++;
+			}
+			if(c == chunks) {
+				to = n;
+			}
+			tasks.add(it.new Range(from, to));
+			from = to;
+		}
+
+		ExecutorService pool = chunks > 1 ? Executors.newFixedThreadPool(chunks) : null;
+		try {
+			while(iterations < maxIterations) {
+				if(Thread.currentThread().isInterrupted()) {
+					throw new InterruptedException();
+				}
+				double delta = 0;
+				double dangling = 0;
+				if(pool == null) {
+					double[] sums = tasks.get(0).call();
+					delta = sums[0];
+					dangling = sums[1];
+				}
+				else {
+					for(Future<double[]> f : pool.invokeAll(tasks)) {
+						double[] sums = f.get();
+						delta += sums[0];
+						dangling += sums[1];
+					}
+				}
+				it.swap(dangling);
+				iterations++;
+				if(delta < tolerance) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			// the ranks are only partly iterated, so none are returned
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("PageRank computation was interrupted", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			if(pool != null) {
+				pool.shutdownNow();
+			}
+		}
+		return it.rank;
+	}
+
+	/**
+	 * Computes the PageRank of every vertex of the given graph as integer
+	 * tags that can be passed to {@link Index}, in place of in-degrees.
+	 * A vertex of average rank gets the scale value, and every vertex
+	 * gets at least 1.
+	 * @param graph
+	 * @return vertices of the graph in vertexData() order, each tagged with its rank
+	 * @throws IllegalStateException if the computation is interrupted
+	 */
+	public <E> ArrayList<TaggedVertex<E>> rank(Graph<E> graph) {
+		ArrayList<E> vertices = graph.vertexData();
+		double[] rank = compute(graph);
+		ArrayList<TaggedVertex<E>> tagged = new ArrayList<TaggedVertex<E>>(vertices.size());
+		for(int i = 0; i < vertices.size(); i++) {
+			long tag = Math.round(rank[i] * vertices.size() * scale);
+			tagged.add(new TaggedVertex<E>(vertices.get(i), (int) Math.max(1, Math.min(Integer.MAX_VALUE, tag))));
+		}
+		return tagged;
+	}
+
+	/**
+	 * Vectors of one computation. rank holds the current ranks and share
+	 * each vertex's rank divided by its out-degree; a step writes the next
+	 * ranks and shares into the other pair of arrays, which swap() then
+	 * makes current.
+	 */
+	private static class Iteration {
+		final int n;
+		final int[] inOffsets;
+		final int[] inSources;
+		final int[] outDegree;
+		final double damping;
+		double[] rank;
+		double[] share;
+		double[] nextRank;
+		double[] nextShare;
+		double base;
+
+		Iteration(int n, int[] inOffsets, int[] inSources, int[] outDegree, double damping) {
+			this.n = n;
+			this.inOffsets = inOffsets;
+			this.inSources = inSources;
+			this.outDegree = outDegree;
+			this.damping = damping;
+			rank = new double[n];
+			share = new double[n];
+			nextRank = new double[n];
+			nextShare = new double[n];
+			double dangling = 0;
+			for(int i = 0; i < n; i++) {
+				rank[i] = 1.0 / n;
+				if(outDegree[i] == 0) {
+					dangling += rank[i];
+				}
+				else {
+					share[i] = rank[i] / outDegree[i];
+				}
+			}
+			setBase(dangling);
+		}
+
+		void setBase(double dangling) {
+			base = (1 - damping) / n + damping * dangling / n;
+		}
+
+		/**
+		 * Task that computes the next ranks of the vertices from (inclusive)
+		 * to to (exclusive) and returns the total change in their rank and
+		 * the total next rank of those without out-edges.
+		 */
+		class Range implements Callable<double[]> {
+			final int from;
+			final int to;
+
+			Range(int from, int to) {
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			public double[] call() {
+				double delta = 0;
+				double dangling = 0;
+				for(int i = from; i < to; i++) {
+					double sum = 0;
+					for(int k = inOffsets[i]; k < inOffsets[i + 1]; k++) {
+						sum += share[inSources[k]];
+					}
+					double r = base + damping * sum;
+					nextRank[i] = r;
+					delta += Math.abs(r - rank[i]);
+					if(outDegree[i] == 0) {
+						dangling += r;
+						nextShare[i] = 0;
+					}
+					else {
+						nextShare[i] = r / outDegree[i];
+					}
+				}
+				return new double[] { delta, dangling };
+			}
+		}
+
+		void swap(double dangling) {
+			double[] t = rank;
+			rank = nextRank;
+			nextRank = t;
+			t = share;
+			share = nextShare;
+			nextShare = t;
+			setBase(dangling);
+		}
+	}
+}
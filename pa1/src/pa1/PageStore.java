@@ -0,0 +1,133 @@
+package pa1;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of downloaded page text, keyed by url, so that a page fetched by the
+ * crawler does not have to be downloaded again by the index. Pages are kept
+ * in memory up to a bound on the total number of characters; the least
+ * recently used pages beyond that bound are either dropped or, if a spill
+ * directory was given, written to disk and read back on demand.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class PageStore {
+	private final long maxChars;
+	private final File spillDir;
+	private final LinkedHashMap<String, String> pages = new LinkedHashMap<String, String>(16, 0.75f, true);
+	private final Map<String, File> spilled = new HashMap<String, File>();
+	private long chars = 0;
+	private int spillCount = 0;
+
+	/**
+	 * Constructs an in-memory store holding at most maxChars characters
+	 * of page text. Pages evicted beyond that bound are dropped.
+	 * @param maxChars
+	 */
+	public PageStore(long maxChars) {
+		this(maxChars, null);
+	}
+
+	/**
+	 * Constructs a store holding at most maxChars characters of page text
+	 * in memory. Pages evicted beyond that bound are written to files in
+	 * spillDir, which is created if needed.
+	 * @param maxChars
+	 * @param spillDir directory for evicted pages, or null to drop them
+	 */
+	public PageStore(long maxChars, File spillDir) {
+		this.maxChars = maxChars;
+		this.spillDir = spillDir;
+		if(spillDir != null && !spillDir.isDirectory() && !spillDir.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create spill directory " + spillDir);
+		}
+	}
+
+	/**
+	 * Stores the text of the page at the given url, replacing any
+	 * text stored for it before.
+	 * @param url
+	 * @param text
+	 */
+	public synchronized void put(String url, String text) {
+		File file = spilled.remove(url);
+		if(file != null) {
+			file.delete();
+		}
+		String old = pages.put(url, text);
+		if(old != null) {
+			chars -= old.length();
+		}
+		chars += text.length();
+		evict();
+	}
+
+	/**
+	 * Returns the text stored for the page at the given url.
+	 * @param url
+	 * @return page text, or null if the page is not in this store
+	 */
+	public synchronized String get(String url) {
+		String text = pages.get(url);
+		if(text != null) {
+			return text;
+		}
+		File file = spilled.get(url);
+		if(file == null) {
+			return null;
+		}
+		try {
+			return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if text is stored for the page at the given url.
+	 * @param url
+	 * @return true if the page is in this store
+	 */
+	public synchronized boolean contains(String url) {
+		return pages.containsKey(url) || spilled.containsKey(url);
+	}
+
+	/**
+	 * Removes the least recently used pages from memory until the
+	 * total size is within maxChars.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, String>> it = pages.entrySet().iterator();
+		while(chars > maxChars && it.hasNext()) {
+			Map.Entry<String, String> eldest = it.next();
+			chars -= eldest.getValue().length();
+			it.remove();
+			if(spillDir != null) {
+				spill(eldest.getKey(), eldest.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Writes the given page text to a new file in the spill directory.
+	 * @param url
+	 * @param text
+	 */
+	private void spill(String url, String text) {
+		File file = new File(spillDir, "page" + spillCount++ + ".txt");
+		try {
+			Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+			spilled.put(url, file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package pa1;
+
+import java.util.Arrays;
+
+/**
+ * Posting list of a single term, stored as parallel primitive arrays of
+ * doc ids and term frequencies sorted by doc id. A positional list also
+ * keeps the token positions of every occurrence: the positions within a
+ * document are stored as gaps from the previous one, each written as a
+ * variable-length integer of 7 bits per byte, in one byte array shared by
+ * all postings of the list.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class PostingList implements Postings {
+	private int[] docs;
+	private int[] freqs;
+	private int size = 0;
+	private byte[] positions;
+	private int[] positionEnds;
+	private int positionBytes = 0;
+	private int lastPosition;
+
+	/**
+	 * Empty list returned for terms that are not in the index.
+	 */
+	static final PostingList EMPTY = new PostingList(1);
+
+	/**
+	 * Constructs an empty posting list.
+	 */
+	PostingList() {
+		this(4);
+	}
+
+	/**
+	 * Constructs an empty posting list with room for the
+	 * given number of postings.
+	 * @param capacity
+	 */
+	PostingList(int capacity) {
+		this(capacity, false);
+	}
+
+	/**
+	 * Constructs an empty posting list with room for the given number
+	 * of postings, which keeps positions if positional is true.
+	 * @param capacity
+	 * @param positional
+	 */
+	PostingList(int capacity, boolean positional) {
+		docs = new int[Math.max(capacity, 1)];
+		freqs = new int[docs.length];
+		if(positional) {
+			positions = new byte[docs.length * 2];
+			positionEnds = new int[docs.length];
+		}
+	}
+
+	/**
+	 * Records one occurrence of the term in the given document. Documents
+	 * must be added in increasing order of doc id.
+	 * @param doc
+	 */
+	void add(int doc) {
+		if(size > 0 && docs[size - 1] == doc) {
+			freqs[size - 1]++;
+		}
+		else {
+			append(doc, 1);
+		}
+	}
+
+	/**
+	 * Records an occurrence of the term at the given token position of
+	 * the given document in a positional list. Documents must be added in
+	 * increasing order of doc id, and the positions within a document in
+	 * increasing order.
+	 * @param doc
+	 * @param position
+	 */
+	void add(int doc, int position) {
+		if(size > 0 && docs[size - 1] == doc) {
+			if(position <= lastPosition) {
+				throw new IllegalStateException("Position " + position + " added out of order after " + lastPosition);
+			}
+			freqs[size - 1]++;
+			writePosition(position - lastPosition);
+		}
+		else {
+			append(doc, 1);
+			writePosition(position);
+		}
+		lastPosition = position;
+		positionEnds[size - 1] = positionBytes;
+	}
+
+	/**
+	 * Appends a posting for a document with a greater doc id
+	 * than any already in this list.
+	 * @param doc
+	 * @param freq
+	 */
+	void append(int doc, int freq) {
+		if(size > 0 && doc <= docs[size - 1]) {
+			throw new IllegalStateException("Doc " + doc + " added out of order after " + docs[size - 1]);
+		}
+		if(size == docs.length) {
+			docs = Arrays.copyOf(docs, size * 2);
+			freqs = Arrays.copyOf(freqs, size * 2);
+			if(positions != null) {
+				positionEnds = Arrays.copyOf(positionEnds, size * 2);
+			}
+		}
+		docs[size] = doc;
+		freqs[size] = freq;
+		if(positions != null) {
+			positionEnds[size] = positionBytes;
+		}
+		size++;
+	}
+
+	/**
+	 * Appends the i-th posting of another list, with its positions if both
+	 * lists are positional. Its doc id must be greater than any already in
+	 * this list.
+	 * @param other
+	 * @param i
+	 */
+	void append(PostingList other, int i) {
+		append(other, i, other.docs[i]);
+	}
+
+	/**
+	 * Appends the i-th posting of another list like
+	 * {@link #append(PostingList, int)}, under the given doc id instead
+	 * of its own.
+	 * @param other
+	 * @param i
+	 * @param doc
+	 */
+	void append(PostingList other, int i, int doc) {
+		append(doc, other.freqs[i]);
+		if(positions != null && other.positions != null) {
+			int from = i == 0 ? 0 : other.positionEnds[i - 1];
+			int length = other.positionEnds[i] - from;
+			ensurePositionBytes(length);
+			System.arraycopy(other.positions, from, positions, positionBytes, length);
+			positionBytes += length;
+			positionEnds[size - 1] = positionBytes;
+		}
+	}
+
+	/**
+	 * Returns true if this list keeps the positions of its postings.
+	 * @return true if positional
+	 */
+	@Override
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	/**
+	 * Decodes the positions of the i-th posting of a positional list into
+	 * the given array, which must have room for freq(i) positions.
+	 * @param i
+	 * @param out
+	 * @return number of positions, freq(i)
+	 */
+	@Override
+	public int positions(int i, int[] out) {
+		int at = i == 0 ? 0 : positionEnds[i - 1];
+		int n = freqs[i];
+		int position = 0;
+		for(int k = 0; k < n; k++) {
+			int gap = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = positions[at++];
+				gap |= (b & 0x7f) << shift;
+				shift += 7;
+			} while(b < 0);
+			position += gap;
+			out[k] = position;
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of bytes held by the arrays of this list,
+	 * including unused capacity.
+	 * @return memory used by the postings
+	 */
+	long memoryBytes() {
+		long bytes = 4L * docs.length + 4L * freqs.length;
+		if(positions != null) {
+			bytes += positions.length + 4L * positionEnds.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes a position gap as a variable-length integer.
+	 * @param gap
+	 */
+	private void writePosition(int gap) {
+		ensurePositionBytes(5);
+		while((gap & ~0x7f) != 0) {
+			positions[positionBytes++] = (byte) ((gap & 0x7f) | 0x80);
+			gap >>>= 7;
+		}
+		positions[positionBytes++] = (byte) gap;
+	}
+
+	/**
+	 * Grows the position array to hold the given number of further bytes.
+	 * @param extra
+	 */
+	private void ensurePositionBytes(int extra) {
+		if(positionBytes + extra > positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(positionBytes + extra, positions.length * 2));
+		}
+	}
+
+	/**
+	 * Returns the number of documents in this list.
+	 * @return number of postings
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the doc id of the i-th posting.
+	 * @param i
+	 * @return doc id
+	 */
+	@Override
+	public int doc(int i) {
+		return docs[i];
+	}
+
+	/**
+	 * Returns the term frequency of the i-th posting.
+	 * @param i
+	 * @return number of occurrences of the term in the document
+	 */
+	@Override
+	public int freq(int i) {
+		return freqs[i];
+	}
+
+	/**
+	 * Returns the position of the first posting at or after position from
+	 * whose doc id is at least target, or size() if there is none. The
+	 * search gallops forward from position from, so skipping ahead in a
+	 * long list costs time logarithmic in the distance skipped.
+	 * @param from
+	 * @param target
+	 * @return position of the first posting with doc id >= target
+	 */
+	@Override
+	public int advance(int from, int target) {
+		if(from >= size || docs[from] >= target) {
+			return from;
+		}
+		int lo = from;
+		int step = 1;
+		int hi = from + 1;
+		while(hi < size && docs[hi] < target) {
+			lo = hi;
+			step <<= 1;
+			hi = from + step;
+		}
+		if(hi > size) {
+			hi = size;
+		}
+		// docs[lo] < target, and docs[hi] >= target or hi == size
+		while(hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			if(docs[mid] < target) {
+				lo = mid;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return hi;
+	}
+}
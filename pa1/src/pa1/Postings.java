@@ -0,0 +1,54 @@
+package pa1;
+
+/**
+ * Read-only view of the posting list of a single term, as seen by the
+ * query code: postings sorted by doc id, each with its term frequency
+ * and, if the list is positional, the token positions of the term.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+interface Postings {
+	/**
+	 * Returns the number of documents in this list.
+	 * @return number of postings
+	 */
+	int size();
+
+	/**
+	 * Returns the doc id of the i-th posting.
+	 * @param i
+	 * @return doc id
+	 */
+	int doc(int i);
+
+	/**
+	 * Returns the term frequency of the i-th posting.
+	 * @param i
+	 * @return number of occurrences of the term in the document
+	 */
+	int freq(int i);
+
+	/**
+	 * Returns the position of the first posting at or after position from
+	 * whose doc id is at least target, or size() if there is none.
+	 * @param from
+	 * @param target
+	 * @return position of the first posting with doc id >= target
+	 */
+	int advance(int from, int target);
+
+	/**
+	 * Returns true if this list keeps the positions of its postings.
+	 * @return true if positional
+	 */
+	boolean hasPositions();
+
+	/**
+	 * Decodes the positions of the i-th posting of a positional list into
+	 * the given array, which must have room for freq(i) positions.
+	 * @param i
+	 * @param out
+	 * @return number of positions, freq(i)
+	 */
+	int positions(int i, int[] out);
+}
@@ -0,0 +1,167 @@
+package pa1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Node of the operator tree produced by QueryParser. Planning a tree turns
+ * it into a DocIterator over the posting lists of an index: the operands of
+ * an AND are ordered by estimated size so the rarest one leads, and any
+ * operand that cannot match is dropped from an OR or empties its AND.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+abstract class QueryNode {
+
+	/**
+	 * Builds an iterator over the documents of the given index
+	 * that match this node.
+	 * @param index
+	 * @return iterator over matching documents, or null if none can match
+	 */
+	abstract DocIterator plan(Index index);
+
+	/**
+	 * Checks that NOT is only used as an operand of an AND that also
+	 * has at least one operand without NOT, since a negation on its own
+	 * would match nearly every document.
+	 * @throws IllegalArgumentException if the check fails
+	 */
+	abstract void validate();
+
+	/**
+	 * A single keyword.
+	 */
+	static class Term extends QueryNode {
+		private final String term;
+
+		Term(String term) {
+			this.term = term;
+		}
+
+		@Override
+		DocIterator plan(Index index) {
+			Postings list = index.postings(term);
+			return list.size() == 0 ? null : new DocIterator.TermIterator(list, index);
+		}
+
+		@Override
+		void validate() {
+		}
+	}
+
+	/**
+	 * Documents matching every operand that is not negated
+	 * and none of the operands that are.
+	 */
+	static class And extends QueryNode {
+		private final List<QueryNode> children;
+
+		And(List<QueryNode> children) {
+			this.children = children;
+		}
+
+		@Override
+		DocIterator plan(Index index) {
+			List<DocIterator> required = new ArrayList<DocIterator>();
+			List<DocIterator> excluded = new ArrayList<DocIterator>();
+			for(QueryNode child : children) {
+				if(child instanceof Not) {
+					DocIterator it = ((Not) child).child.plan(index);
+					if(it != null) {
+						excluded.add(it);
+					}
+				}
+				else {
+					DocIterator it = child.plan(index);
+					if(it == null) {
+						return null;
+					}
+					required.add(it);
+				}
+			}
+			Collections.sort(required, new Comparator<DocIterator>() {
+				@Override
+				public int compare(DocIterator o1, DocIterator o2) {
+					return Long.compare(o1.cost(), o2.cost());
+				}
+			});
+			return required.size() == 1 && excluded.isEmpty()
+					? required.get(0) : new DocIterator.AndIterator(required, excluded);
+		}
+
+		@Override
+		void validate() {
+			boolean positive = false;
+			for(QueryNode child : children) {
+				if(child instanceof Not) {
+					((Not) child).child.validate();
+				}
+				else {
+					positive = true;
+					child.validate();
+				}
+			}
+			if(!positive) {
+				throw new IllegalArgumentException("AND needs at least one operand without NOT");
+			}
+		}
+	}
+
+	/**
+	 * Documents matching at least one operand.
+	 */
+	static class Or extends QueryNode {
+		private final List<QueryNode> children;
+
+		Or(List<QueryNode> children) {
+			this.children = children;
+		}
+
+		@Override
+		DocIterator plan(Index index) {
+			List<DocIterator> options = new ArrayList<DocIterator>();
+			for(QueryNode child : children) {
+				DocIterator it = child.plan(index);
+				if(it != null) {
+					options.add(it);
+				}
+			}
+			if(options.isEmpty()) {
+				return null;
+			}
+			return options.size() == 1 ? options.get(0) : new DocIterator.OrIterator(options);
+		}
+
+		@Override
+		void validate() {
+			for(QueryNode child : children) {
+				child.validate();
+			}
+		}
+	}
+
+	/**
+	 * Documents not matching the operand. Only valid as
+	 * an operand of an AND.
+	 */
+	static class Not extends QueryNode {
+		private final QueryNode child;
+
+		Not(QueryNode child) {
+			this.child = child;
+		}
+
+		@Override
+		DocIterator plan(Index index) {
+			throw new IllegalArgumentException("NOT can only be used as an operand of AND");
+		}
+
+		@Override
+		void validate() {
+			throw new IllegalArgumentException("NOT can only be used as an operand of AND");
+		}
+	}
+}
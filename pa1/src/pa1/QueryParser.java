@@ -0,0 +1,147 @@
+package pa1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for boolean search expressions such as
+ * <pre>
+ *   (a AND b) OR (c AND NOT d)
+ * </pre>
+ * The operators AND, OR and NOT must be written in capitals. NOT binds
+ * tightest and OR loosest, parentheses group, and two terms with no
+ * operator between them are combined with AND. Any other word is a
+ * keyword to be looked up in the index as given.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class QueryParser {
+	private final List<String> tokens;
+	private int pos = 0;
+
+	/**
+	 * Constructs a parser for the given expression.
+	 * @param expression
+	 */
+	private QueryParser(String expression) {
+		tokens = split(expression);
+	}
+
+	/**
+	 * Parses the given expression into an operator tree.
+	 * @param expression
+	 * @return root of the operator tree
+	 * @throws IllegalArgumentException if the expression is malformed
+	 */
+	static QueryNode parse(String expression) {
+		QueryParser parser = new QueryParser(expression);
+		if(parser.tokens.isEmpty()) {
+			throw new IllegalArgumentException("Empty query");
+		}
+		QueryNode root = parser.parseOr();
+		if(parser.pos < parser.tokens.size()) {
+			throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.pos) + "' in query: " + expression);
+		}
+		root.validate();
+		return root;
+	}
+
+	/**
+	 * Splits the expression into words and parentheses.
+	 * @param expression
+	 * @return list of tokens
+	 */
+	private static List<String> split(String expression) {
+		List<String> result = new ArrayList<String>();
+		int i = 0;
+		while(i < expression.length()) {
+			char c = expression.charAt(i);
+			if(Character.isWhitespace(c)) {
+				i++;
+			}
+			else if(c == '(' || c == ')') {
+				result.add(String.valueOf(c));
+				i++;
+			}
+			else {
+				int start = i;
+				while(i < expression.length() && !Character.isWhitespace(expression.charAt(i))
+						&& expression.charAt(i) != '(' && expression.charAt(i) != ')') {
+					i++;
+				}
+				result.add(expression.substring(start, i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the next token without consuming it.
+	 * @return next token, or null at the end of the expression
+	 */
+	private String peek() {
+		return pos < tokens.size() ? tokens.get(pos) : null;
+	}
+
+	/**
+	 * Parses operands separated by OR.
+	 * @return parsed node
+	 */
+	private QueryNode parseOr() {
+		List<QueryNode> children = new ArrayList<QueryNode>();
+		children.add(parseAnd());
+		while("OR".equals(peek())) {
+			pos++;
+			children.add(parseAnd());
+		}
+		return children.size() == 1 ? children.get(0) : new QueryNode.Or(children);
+	}
+
+	/**
+	 * Parses operands separated by AND or by nothing at all.
+	 * @return parsed node
+	 */
+	private QueryNode parseAnd() {
+		List<QueryNode> children = new ArrayList<QueryNode>();
+		children.add(parseUnary());
+		while(true) {
+			String next = peek();
+			if("AND".equals(next)) {
+				pos++;
+			}
+			else if(next == null || next.equals(")") || next.equals("OR")) {
+				break;
+			}
+			children.add(parseUnary());
+		}
+		return children.size() == 1 ? children.get(0) : new QueryNode.And(children);
+	}
+
+	/**
+	 * Parses a keyword, a parenthesized expression, or NOT
+	 * followed by either of those.
+	 * @return parsed node
+	 */
+	private QueryNode parseUnary() {
+		String next = peek();
+		if(next == null) {
+			throw new IllegalArgumentException("Query ends where a keyword was expected");
+		}
+		pos++;
+		if(next.equals("NOT")) {
+			return new QueryNode.Not(parseUnary());
+		}
+		if(next.equals("(")) {
+			QueryNode inner = parseOr();
+			if(!")".equals(peek())) {
+				throw new IllegalArgumentException("Missing ')' in query");
+			}
+			pos++;
+			return inner;
+		}
+		if(next.equals(")") || next.equals("AND") || next.equals("OR")) {
+			throw new IllegalArgumentException("Unexpected '" + next + "' where a keyword was expected");
+		}
+		return new QueryNode.Term(next);
+	}
+}
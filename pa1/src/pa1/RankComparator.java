@@ -15,8 +15,6 @@ public class RankComparator implements Comparator<TaggedVertex<String>> {
 
 	@Override
 	public int compare(TaggedVertex<String> o1, TaggedVertex<String> o2) {
-		Integer tag1 = o1.getTagValue();
-		Integer tag2 = o2.getTagValue();
-		return tag2.compareTo(tag1);
+		return Integer.compare(o2.getTagValue(), o1.getTagValue());
 	}
 }
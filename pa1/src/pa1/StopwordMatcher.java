@@ -0,0 +1,198 @@
+package pa1;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+
+import api.Util;
+
+/**
+ * Immutable set of stop words stored as a compact char trie, so that a
+ * term can be looked up directly from a char range or CharSequence without
+ * allocating a String. The children of node i are the labels and nodes at
+ * positions firstChild[i] up to firstChild[i + 1], sorted by label, so a
+ * lookup costs one short scan per character and touches only a few small
+ * arrays. Words are matched exactly; terms produced by a {@link Tokenizer}
+ * are lowercase, so lists for it should be lowercase too.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class StopwordMatcher {
+	private static final StopwordMatcher ENGLISH = new StopwordMatcher(Util.stopwords());
+	private static final StopwordMatcher NONE = new StopwordMatcher(new ArrayList<String>());
+
+	private final int[] firstChild;
+	private final char[] labels;
+	private final int[] children;
+	private final boolean[] terminal;
+	private final int size;
+
+	/**
+	 * Constructs a matcher for the given words.
+	 * @param words
+	 */
+	public StopwordMatcher(Collection<String> words) {
+		Node root = new Node();
+		int count = 0;
+		for(String word : words) {
+			Node node = root;
+			for(int i = 0; i < word.length(); i++) {
+				char c = word.charAt(i);
+				Node child = node.children.get(c);
+				if(child == null) {
+					child = new Node();
+					node.children.put(c, child);
+				}
+				node = child;
+			}
+			if(!node.terminal) {
+				node.terminal = true;
+				count++;
+			}
+		}
+		this.size = count;
+
+		// number the nodes breadth first, so each node's children are contiguous
+		List<Node> order = new ArrayList<Node>();
+		order.add(root);
+		for(int i = 0; i < order.size(); i++) {
+			order.addAll(order.get(i).children.values());
+		}
+		int n = order.size();
+		firstChild = new int[n + 1];
+		labels = new char[n - 1];
+		children = new int[n - 1];
+		terminal = new boolean[n];
+		int next = 1;
+		for(int i = 0; i < n; i++) {
+			Node node = order.get(i);
+			terminal[i] = node.terminal;
+			firstChild[i] = next - 1;
+			for(char c : node.children.keySet()) {
+				labels[next - 1] = c;
+				children[next - 1] = next;
+				next++;
+			}
+		}
+		firstChild[n] = n - 1;
+	}
+
+	/**
+	 * Constructs a matcher for the given words.
+	 * @param words
+	 */
+	public StopwordMatcher(String... words) {
+		this(Arrays.asList(words));
+	}
+
+	/**
+	 * Returns a matcher for the English stop words of {@link Util#isStopWord}.
+	 * @return matcher that agrees with Util.isStopWord
+	 */
+	public static StopwordMatcher english() {
+		return ENGLISH;
+	}
+
+	/**
+	 * Returns a matcher that matches nothing.
+	 * @return empty matcher
+	 */
+	public static StopwordMatcher none() {
+		return NONE;
+	}
+
+	/**
+	 * Reads a matcher from a UTF-8 text file with one word per line.
+	 * Surrounding whitespace is removed, and blank lines and lines
+	 * starting with '#' are skipped.
+	 * @param file
+	 * @return matcher for the words in the file
+	 * @throws IOException
+	 */
+	public static StopwordMatcher fromFile(File file) throws IOException {
+		List<String> words = new ArrayList<String>();
+		try(BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			String line;
+			while((line = in.readLine()) != null) {
+				line = line.trim();
+				if(!line.isEmpty() && line.charAt(0) != '#') {
+					words.add(line);
+				}
+			}
+		}
+		return new StopwordMatcher(words);
+	}
+
+	/**
+	 * Returns true if the given characters spell a stop word.
+	 * @param buffer
+	 * @param offset index of the first character
+	 * @param length number of characters
+	 * @return true if the range is a stop word
+	 */
+	public boolean matches(char[] buffer, int offset, int length) {
+		int node = 0;
+		for(int i = offset; i < offset + length; i++) {
+			node = child(node, buffer[i]);
+			if(node < 0) {
+				return false;
+			}
+		}
+		return terminal[node];
+	}
+
+	/**
+	 * Returns true if the given sequence is a stop word.
+	 * @param s
+	 * @return true if s is a stop word
+	 */
+	public boolean matches(CharSequence s) {
+		int node = 0;
+		for(int i = 0; i < s.length(); i++) {
+			node = child(node, s.charAt(i));
+			if(node < 0) {
+				return false;
+			}
+		}
+		return terminal[node];
+	}
+
+	/**
+	 * Returns the number of distinct stop words.
+	 * @return number of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the child of the given node with the given label.
+	 * @param node
+	 * @param c
+	 * @return child node, or -1 if there is none
+	 */
+	private int child(int node, char c) {
+		for(int i = firstChild[node]; i < firstChild[node + 1]; i++) {
+			if(labels[i] >= c) {
+				return labels[i] == c ? children[i] : -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Trie node used while building the arrays.
+	 */
+	private static class Node {
+		final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+		boolean terminal;
+	}
+}
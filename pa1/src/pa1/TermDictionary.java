@@ -0,0 +1,189 @@
+package pa1;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Maps each term to a dense int id and holds the posting list of every term.
+ * Ids are assigned in the order terms are first added.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class TermDictionary {
+	private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private ArrayList<String> terms = new ArrayList<String>();
+	private ArrayList<PostingList> postings = new ArrayList<PostingList>();
+	private final boolean positional;
+
+	/**
+	 * Constructs an empty dictionary whose posting lists
+	 * do not keep positions.
+	 */
+	TermDictionary() {
+		this(false);
+	}
+
+	/**
+	 * Constructs an empty dictionary whose posting lists
+	 * keep positions if positional is true.
+	 * @param positional
+	 */
+	TermDictionary(boolean positional) {
+		this.positional = positional;
+	}
+
+	/**
+	 * Returns the id of the given term, adding the term with an empty
+	 * posting list if it is not in the dictionary yet.
+	 * @param term
+	 * @return term id
+	 */
+	int getOrAdd(String term) {
+		Integer id = ids.get(term);
+		if(id != null) {
+			return id;
+		}
+		int newId = terms.size();
+		ids.put(term, newId);
+		terms.add(term);
+		postings.add(new PostingList(4, positional));
+		return newId;
+	}
+
+	/**
+	 * Adds a term that is not in the dictionary yet,
+	 * with the given posting list.
+	 * @param term
+	 * @param list
+	 * @return term id
+	 */
+	int add(String term, PostingList list) {
+		if(ids.containsKey(term)) {
+			throw new IllegalArgumentException("Term is already in the dictionary: " + term);
+		}
+		if(list.hasPositions() != positional) {
+			throw new IllegalArgumentException("Posting list does not match the dictionary's positional mode");
+		}
+		int newId = terms.size();
+		ids.put(term, newId);
+		terms.add(term);
+		postings.add(list);
+		return newId;
+	}
+
+	/**
+	 * Returns the id of the given term.
+	 * @param term
+	 * @return term id, or -1 if the term is not in the dictionary
+	 */
+	int id(String term) {
+		Integer id = ids.get(term);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the term with the given id.
+	 * @param id
+	 * @return term
+	 */
+	String term(int id) {
+		return terms.get(id);
+	}
+
+	/**
+	 * Returns the posting list of the term with the given id.
+	 * @param id
+	 * @return posting list
+	 */
+	PostingList postings(int id) {
+		return postings.get(id);
+	}
+
+	/**
+	 * Returns the posting list of the given term.
+	 * @param term
+	 * @return posting list, or null if the term is not in the dictionary
+	 */
+	PostingList postings(String term) {
+		Integer id = ids.get(term);
+		return id == null ? null : postings.get(id);
+	}
+
+	/**
+	 * Returns the number of terms in the dictionary.
+	 * @return number of terms
+	 */
+	int size() {
+		return terms.size();
+	}
+
+	/**
+	 * Returns true if the posting lists of this dictionary keep positions.
+	 * @return true if positional
+	 */
+	boolean isPositional() {
+		return positional;
+	}
+
+	/**
+	 * Returns the number of bytes held by the posting lists
+	 * of this dictionary.
+	 * @return memory used by the postings
+	 */
+	long memoryBytes() {
+		long bytes = 0;
+		for(PostingList list : postings) {
+			bytes += list.memoryBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Appends the postings of another dictionary to this one. Every doc id
+	 * in the other dictionary must be greater than those already here, so
+	 * merging partial dictionaries in doc id order gives the same terms,
+	 * term ids and postings as indexing all documents into one dictionary.
+	 * @param other
+	 */
+	void merge(TermDictionary other) {
+		merge(other, null);
+	}
+
+	/**
+	 * Appends the postings of another dictionary to this one like
+	 * {@link #merge(TermDictionary)}, leaving out the postings of the
+	 * documents in the deleted set. A term is only added if some
+	 * posting of it is kept.
+	 * @param other
+	 * @param deleted doc ids to leave out, or null to keep all
+	 */
+	void merge(TermDictionary other, BitSet deleted) {
+		merge(other, deleted, null);
+	}
+
+	/**
+	 * Appends the postings of another dictionary to this one like
+	 * {@link #merge(TermDictionary, BitSet)}, giving each kept posting
+	 * the doc id the map assigns to its document. The map must keep the
+	 * order of the doc ids it is given.
+	 * @param other
+	 * @param deleted doc ids to leave out, or null to keep all
+	 * @param docMap new doc id of each doc id, or null to keep them
+	 */
+	void merge(TermDictionary other, BitSet deleted, int[] docMap) {
+		for(int i = 0; i < other.size(); i++) {
+			PostingList from = other.postings(i);
+			PostingList to = null;
+			for(int j = 0; j < from.size(); j++) {
+				if(deleted != null && deleted.get(from.doc(j))) {
+					continue;
+				}
+				if(to == null) {
+					to = postings(getOrAdd(other.term(i)));
+				}
+				to.append(from, j, docMap == null ? from.doc(j) : docMap[from.doc(j)]);
+			}
+		}
+	}
+}
@@ -0,0 +1,344 @@
+package pa1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sorted, front-coded set of terms supporting prefix expansion and fuzzy
+ * lookup. Terms are kept in blocks of 16; the first term of a block is
+ * stored whole and every other term as the length of the prefix it shares
+ * with the term before it plus the remaining characters. All characters
+ * live in one char array, so the lexicon costs the unshared characters of
+ * each term plus 6 bytes.
+ * <p>
+ * Fuzzy lookup walks the sorted terms as the paths of an implicit trie,
+ * computing one row of the Levenshtein table per character. Rows for the
+ * prefix a term shares with the previous one are reused, and as soon as
+ * every entry of a row exceeds the allowed distance, all terms with that
+ * prefix are skipped with a binary search. This visits the same prefixes
+ * as running a Levenshtein automaton over a trie of the terms, without
+ * comparing the word against every term.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class TermLexicon {
+	private static final int BLOCK = 16;
+
+	private final int size;
+	private final char[] chars;
+	private final int[] suffixStart;
+	private final char[] shared;
+
+	/**
+	 * Constructs a lexicon of the given terms. Duplicates are removed.
+	 * @param terms
+	 */
+	public TermLexicon(Collection<String> terms) {
+		String[] sorted = terms.toArray(new String[0]);
+		Arrays.sort(sorted);
+		int n = 0;
+		for(int i = 0; i < sorted.length; i++) {
+			if(n == 0 || !sorted[i].equals(sorted[n - 1])) {
+				sorted[n++] = sorted[i];
+			}
+		}
+		this.size = n;
+		this.suffixStart = new int[n + 1];
+		this.shared = new char[n];
+
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < n; i++) {
+			String term = sorted[i];
+			int common = 0;
+			if(i % BLOCK != 0) {
+				String prev = sorted[i - 1];
+				int max = Math.min(Math.min(prev.length(), term.length()), Character.MAX_VALUE);
+				while(common < max && prev.charAt(common) == term.charAt(common)) {
+					common++;
+				}
+			}
+			shared[i] = (char) common;
+			suffixStart[i] = sb.length();
+			sb.append(term, common, term.length());
+		}
+		suffixStart[n] = sb.length();
+		this.chars = new char[sb.length()];
+		sb.getChars(0, sb.length(), chars, 0);
+	}
+
+	/**
+	 * Returns the number of terms.
+	 * @return number of terms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the term at the given position in sorted order.
+	 * @param i
+	 * @return term
+	 */
+	public String term(int i) {
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i);
+		}
+		Cursor c = new Cursor();
+		c.seek(i);
+		return c.toString();
+	}
+
+	/**
+	 * Returns the number of bytes held by the lexicon's arrays.
+	 * @return memory used in bytes
+	 */
+	public long memoryBytes() {
+		return 2L * chars.length + 4L * suffixStart.length + 2L * shared.length;
+	}
+
+	/**
+	 * Returns the terms that start with the given prefix, in sorted order.
+	 * @param prefix
+	 * @param limit maximum number of terms to return
+	 * @return matching terms
+	 */
+	public List<String> prefix(String prefix, int limit) {
+		List<String> found = new ArrayList<String>();
+		Cursor c = new Cursor();
+		int i = lowerBound(prefix, c);
+		if(i == size) {
+			return found;
+		}
+		c.seek(i);
+		while(found.size() < limit && c.startsWith(prefix)) {
+			found.add(c.toString());
+			if(c.index + 1 == size) {
+				break;
+			}
+			c.next();
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the terms within the given Levenshtein distance of the
+	 * given word, that is, the terms that can be turned into the word by
+	 * at most maxEdits single-character insertions, deletions and
+	 * substitutions, in sorted order.
+	 * @param word
+	 * @param maxEdits
+	 * @return matching terms
+	 */
+	public List<String> fuzzy(String word, int maxEdits) {
+		List<String> found = new ArrayList<String>();
+		int m = word.length();
+		int[][] rows = new int[16][];
+		rows[0] = new int[m + 1];
+		for(int j = 0; j <= m; j++) {
+			rows[0][j] = j;
+		}
+		// path[0..depth) are the characters whose rows are in rows[1..depth]
+		char[] path = new char[16];
+		int depth = 0;
+
+		Cursor c = new Cursor();
+		int i = 0;
+		while(i < size) {
+			if(i == c.index + 1) {
+				c.next();
+			}
+			else {
+				c.seek(i);
+			}
+			int common = 0;
+			int max = Math.min(depth, c.len);
+			while(common < max && path[common] == c.buf[common]) {
+				common++;
+			}
+			depth = common;
+
+			boolean pruned = false;
+			while(depth < c.len) {
+				char ch = c.buf[depth];
+				if(depth + 1 == rows.length) {
+					rows = Arrays.copyOf(rows, rows.length * 2);
+					path = Arrays.copyOf(path, path.length * 2);
+				}
+				int[] prev = rows[depth];
+				int[] row = rows[depth + 1];
+				if(row == null) {
+					row = rows[depth + 1] = new int[m + 1];
+				}
+				row[0] = depth + 1;
+				int min = row[0];
+				for(int j = 1; j <= m; j++) {
+					int cost = word.charAt(j - 1) == ch ? 0 : 1;
+					row[j] = Math.min(Math.min(row[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+					min = Math.min(min, row[j]);
+				}
+				path[depth++] = ch;
+				if(min > maxEdits) {
+					pruned = true;
+					break;
+				}
+			}
+
+			if(pruned) {
+				// no term extending path[0..depth) can match: skip past them all
+				i = Math.max(skipPrefix(path, depth, c), i + 1);
+			}
+			else {
+				if(rows[depth][m] <= maxEdits) {
+					found.add(c.toString());
+				}
+				i++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the position of the first term greater than every
+	 * term that starts with the given characters.
+	 * @param prefix
+	 * @param length number of characters of prefix to use
+	 * @param c cursor to reuse
+	 * @return position of the first term after the prefix's range
+	 */
+	private int skipPrefix(char[] prefix, int length, Cursor c) {
+		int last = length - 1;
+		while(last >= 0 && prefix[last] == Character.MAX_VALUE) {
+			last--;
+		}
+		if(last < 0) {
+			return size;
+		}
+		StringBuilder successor = new StringBuilder(last + 1);
+		successor.append(prefix, 0, last);
+		successor.append((char) (prefix[last] + 1));
+		return lowerBound(successor, c);
+	}
+
+	/**
+	 * Returns the position of the first term that is not less than the
+	 * given key, found by a binary search over the first terms of the
+	 * blocks followed by a scan of one block.
+	 * @param key
+	 * @param c cursor to reuse
+	 * @return position of the first term >= key, or size() if there is none
+	 */
+	private int lowerBound(CharSequence key, Cursor c) {
+		if(size == 0) {
+			return 0;
+		}
+		// find the last block whose first term is < key
+		int lo = 0;
+		int hi = (size - 1) / BLOCK;
+		if(compareHead(0, key) >= 0) {
+			return 0;
+		}
+		while(lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if(compareHead(mid, key) < 0) {
+				lo = mid;
+			}
+			else {
+				hi = mid - 1;
+			}
+		}
+		int i = lo * BLOCK;
+		int end = Math.min(size, i + BLOCK);
+		c.seek(i);
+		while(c.compareTo(key) < 0) {
+			if(c.index + 1 == end) {
+				return end;
+			}
+			c.next();
+		}
+		return c.index;
+	}
+
+	/**
+	 * Compares the first term of the given block with a key.
+	 * @param block
+	 * @param key
+	 * @return negative, zero or positive as the term is less than,
+	 *         equal to or greater than the key
+	 */
+	private int compareHead(int block, CharSequence key) {
+		int i = block * BLOCK;
+		return compare(chars, suffixStart[i], suffixStart[i + 1] - suffixStart[i], key);
+	}
+
+	private static int compare(char[] a, int from, int length, CharSequence key) {
+		int n = Math.min(length, key.length());
+		for(int k = 0; k < n; k++) {
+			char x = a[from + k];
+			char y = key.charAt(k);
+			if(x != y) {
+				return x - y;
+			}
+		}
+		return length - key.length();
+	}
+
+	/**
+	 * Position in the lexicon together with the decoded term there.
+	 */
+	private class Cursor {
+		char[] buf = new char[32];
+		int len;
+		int index = -1;
+
+		/**
+		 * Moves to the term at position i, decoding from the
+		 * start of its block.
+		 */
+		void seek(int i) {
+			index = i - i % BLOCK - 1;
+			len = 0;
+			do {
+				next();
+			} while(index < i);
+		}
+
+		/**
+		 * Moves to the next term, reusing the prefix it shares
+		 * with the current one.
+		 */
+		void next() {
+			index++;
+			int common = shared[index];
+			int from = suffixStart[index];
+			int length = suffixStart[index + 1] - from;
+			if(common + length > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(common + length, buf.length * 2));
+			}
+			System.arraycopy(chars, from, buf, common, length);
+			len = common + length;
+		}
+
+		boolean startsWith(String prefix) {
+			if(prefix.length() > len) {
+				return false;
+			}
+			for(int k = 0; k < prefix.length(); k++) {
+				if(buf[k] != prefix.charAt(k)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		int compareTo(CharSequence key) {
+			return compare(buf, 0, len, key);
+		}
+
+		@Override
+		public String toString() {
+			return new String(buf, 0, len);
+		}
+	}
+}
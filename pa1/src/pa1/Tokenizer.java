@@ -0,0 +1,101 @@
+package pa1;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Single-pass tokenizer that splits text into terms the same way as
+ * reading it with a java.util.Scanner and passing each token through
+ * Util.stripPunctuation: tokens are separated by whitespace, lowercased,
+ * and stripped of every character other than 'a' through 'z'. A token made
+ * up only of such characters produces an empty term, as it does with
+ * stripPunctuation.
+ * <p>
+ * Terms are written into a reused buffer and handed to a callback, so no
+ * String is allocated unless the callback creates one. Instances are not
+ * thread safe.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class Tokenizer {
+	private final boolean dottedI;
+	private char[] buffer = new char[32];
+
+	/**
+	 * Receives the terms produced by a Tokenizer.
+	 */
+	public interface TermSink {
+		/**
+		 * Called once for each term. The buffer is reused for the next
+		 * term, so it must not be kept after this method returns.
+		 * @param buffer characters of the term
+		 * @param length number of characters of the term in buffer
+		 */
+		void term(char[] buffer, int length);
+	}
+
+	/**
+	 * Constructs a tokenizer that lowercases like String.toLowerCase()
+	 * does in the default locale.
+	 */
+	public Tokenizer() {
+		String lang = Locale.getDefault().getLanguage();
+		// in Turkish and Azeri 'I' lowercases to a dotless i, which is then stripped
+		dottedI = !("tr".equals(lang) || "az".equals(lang));
+	}
+
+	/**
+	 * Splits the given text into terms and passes each one to the sink.
+	 * @param text
+	 * @param sink
+	 */
+	public void tokenize(CharSequence text, TermSink sink) {
+		int length = text.length();
+		int i = 0;
+		while(i < length) {
+			while(i < length && Character.isWhitespace(text.charAt(i))) {
+				i++;
+			}
+			if(i == length) {
+				return;
+			}
+			int n = 0;
+			while(i < length) {
+				char c = text.charAt(i);
+				if(Character.isWhitespace(c)) {
+					break;
+				}
+				char lower = toLower(c);
+				if(lower != 0) {
+					if(n == buffer.length) {
+						buffer = Arrays.copyOf(buffer, n * 2);
+					}
+					buffer[n++] = lower;
+				}
+				i++;
+			}
+			sink.term(buffer, n);
+		}
+	}
+
+	/**
+	 * Returns the lowercase ASCII letter for the given character,
+	 * or 0 if it is not a letter that lowercases to 'a' through 'z'.
+	 * @param c
+	 * @return lowercase letter, or 0
+	 */
+	private char toLower(char c) {
+		if(c >= 'a' && c <= 'z') {
+			return c;
+		}
+		if(c >= 'A' && c <= 'Z') {
+			return c == 'I' && !dottedI ? 0 : (char) (c + ('a' - 'A'));
+		}
+		if(c < 128) {
+			return 0;
+		}
+		// a few non-ASCII letters, such as the Kelvin sign, lowercase to ASCII
+		char lower = Character.toLowerCase(c);
+		return lower >= 'a' && lower <= 'z' ? lower : 0;
+	}
+}
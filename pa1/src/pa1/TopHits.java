@@ -0,0 +1,131 @@
+package pa1;
+
+/**
+ * Collector that keeps only the best hits of a query in a bounded min-heap
+ * of primitive (rank, doc id) pairs, so finding the top k of n hits takes
+ * O(n log k) time and no boxing. Hits are ordered by rank, largest first,
+ * and equal ranks by doc id, matching the order of the full ranked lists.
+ * 
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class TopHits implements HitCollector {
+	private final int[] docs;
+	private final int[] ranks;
+	private int size = 0;
+
+	/**
+	 * Constructs a collector that keeps the given number of best hits.
+	 * @param capacity
+	 */
+	TopHits(int capacity) {
+		docs = new int[capacity];
+		ranks = new int[capacity];
+	}
+
+	@Override
+	public void collect(int doc, int rank) {
+		if(size < docs.length) {
+			docs[size] = doc;
+			ranks[size] = rank;
+			siftUp(size++);
+		}
+		else if(size > 0 && better(rank, doc, ranks[0], docs[0])) {
+			docs[0] = doc;
+			ranks[0] = rank;
+			siftDown(0, size);
+		}
+	}
+
+	/**
+	 * Sorts the collected hits, best first, emptying the heap. After this
+	 * call the i-th best hit is given by doc(i) and rank(i).
+	 * @return number of hits kept
+	 */
+	int finish() {
+		int n = size;
+		for(int end = n - 1; end > 0; end--) {
+			swap(0, end);
+			siftDown(0, end);
+		}
+		size = 0;
+		return n;
+	}
+
+	/**
+	 * Returns the doc id of the i-th best hit after finish().
+	 * @param i
+	 * @return doc id
+	 */
+	int doc(int i) {
+		return docs[i];
+	}
+
+	/**
+	 * Returns the rank of the i-th best hit after finish().
+	 * @param i
+	 * @return rank
+	 */
+	int rank(int i) {
+		return ranks[i];
+	}
+
+	/**
+	 * Returns true if the first hit ranks ahead of the second.
+	 * @return true if (rank1, doc1) is the better hit
+	 */
+	private static boolean better(int rank1, int doc1, int rank2, int doc2) {
+		return rank1 > rank2 || (rank1 == rank2 && doc1 < doc2);
+	}
+
+	/**
+	 * Moves the hit at position i up until its parent ranks ahead of it.
+	 * @param i
+	 */
+	private void siftUp(int i) {
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			if(!better(ranks[parent], docs[parent], ranks[i], docs[i])) {
+				return;
+			}
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	/**
+	 * Moves the hit at position i down until both children within
+	 * the first end positions rank behind it.
+	 * @param i
+	 * @param end
+	 */
+	private void siftDown(int i, int end) {
+		while(true) {
+			int worst = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if(left < end && better(ranks[worst], docs[worst], ranks[left], docs[left])) {
+				worst = left;
+			}
+			if(right < end && better(ranks[worst], docs[worst], ranks[right], docs[right])) {
+				worst = right;
+			}
+			if(worst == i) {
+				return;
+			}
+			swap(i, worst);
+			i = worst;
+		}
+	}
+
+	/**
+	 * Exchanges the hits at positions i and j.
+	 */
+	private void swap(int i, int j) {
+		int d = docs[i];
+		docs[i] = docs[j];
+		docs[j] = d;
+		int r = ranks[i];
+		ranks[i] = ranks[j];
+		ranks[j] = r;
+	}
+}
@@ -0,0 +1,148 @@
+package pa1;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rewrites urls into a normal form so that spellings of the same page
+ * become a single vertex of the web graph. For http and https urls the
+ * normal form
+ * <ul>
+ * <li>lowercases the scheme and host,</li>
+ * <li>drops the port if it is the default one for the scheme,</li>
+ * <li>drops the fragment,</li>
+ * <li>uses "/" for an empty path and removes a trailing "/" from any other path,</li>
+ * <li>sorts the query parameters and drops empty ones.</li>
+ * </ul>
+ * Urls with other schemes only lose their fragment.
+ * <p>
+ * Each url is parsed once; its normal form, host and path are kept
+ * together so that the ignore rule of {@link api.Util#ignoreLink} can be
+ * applied without parsing it again. Recently seen urls, such as the
+ * navigation links repeated on every page of a site, are answered from
+ * a small cache. Instances are not safe for concurrent use.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public class UrlCanonicalizer {
+	private static final int CACHE_SIZE = 4096;
+
+	private final LinkedHashMap<String, Parsed> cache = new LinkedHashMap<String, Parsed>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Parsed> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Returns the normal form of the given url.
+	 * @param url
+	 * @return normal form, or null if the url is malformed
+	 */
+	public String canonicalize(String url) {
+		Parsed p = parse(url);
+		return p == null ? null : p.url;
+	}
+
+	/**
+	 * Parses and normalizes the given url.
+	 * @param url
+	 * @return the parsed url, or null if it is malformed
+	 */
+	Parsed parse(String url) {
+		Parsed p = cache.get(url);
+		if(p == null && !cache.containsKey(url)) {
+			p = normalize(url);
+			cache.put(url, p);
+		}
+		return p;
+	}
+
+	/**
+	 * Applies the rule of {@link api.Util#ignoreLink} to urls that have
+	 * already been parsed: a link is ignored if it points back to the page
+	 * it is on, or if its path contains a ":".
+	 * @param page url of the page the link is on
+	 * @param link
+	 * @return true if the link should be left out of the graph
+	 */
+	static boolean ignoreLink(Parsed page, Parsed link) {
+		if(page.host.equals(link.host) && page.path.equals(link.path)) {
+			return true;
+		}
+		return link.path.contains(":");
+	}
+
+	/**
+	 * Parses a url and builds its normal form.
+	 * @param url
+	 * @return the parsed url, or null if it is malformed
+	 */
+	private static Parsed normalize(String url) {
+		URL u;
+		try {
+			u = new URL(url);
+		} catch (MalformedURLException e) {
+			return null;
+		}
+		String scheme = u.getProtocol().toLowerCase();
+		if(!scheme.equals("http") && !scheme.equals("https")) {
+			int hash = url.indexOf('#');
+			String path = u.getPath();
+			return new Parsed(hash < 0 ? url : url.substring(0, hash), u.getHost(), path);
+		}
+
+		String host = u.getHost().toLowerCase();
+		String path = u.getPath();
+		if(path.isEmpty()) {
+			path = "/";
+		}
+		else if(path.length() > 1 && path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+
+		StringBuilder sb = new StringBuilder(url.length());
+		sb.append(scheme).append("://");
+		if(u.getUserInfo() != null) {
+			sb.append(u.getUserInfo()).append('@');
+		}
+		sb.append(host);
+		if(u.getPort() != -1 && u.getPort() != u.getDefaultPort()) {
+			sb.append(':').append(u.getPort());
+		}
+		sb.append(path);
+		String query = u.getQuery();
+		if(query != null) {
+			String[] params = query.split("&");
+			Arrays.sort(params);
+			char sep = '?';
+			for(String param : params) {
+				if(!param.isEmpty()) {
+					sb.append(sep).append(param);
+					sep = '&';
+				}
+			}
+		}
+		return new Parsed(sb.toString(), host, path);
+	}
+
+	/**
+	 * A url in normal form, with its host and path.
+	 */
+	static class Parsed {
+		final String url;
+		final String host;
+		final String path;
+
+		Parsed(String url, String host, String path) {
+			this.url = url;
+			this.host = host;
+			this.path = path;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package pa1;
+
+/**
+ * Set of urls a crawl has already discovered. Implementations may trade
+ * exactness for memory: a url that was never added may be reported as
+ * present, but a url that was added is always reported as present.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+public interface VisitedSet {
+	/**
+	 * Adds the given url to the set.
+	 * @param url
+	 * @return true if the url was not already reported as present
+	 */
+	boolean add(String url);
+
+	/**
+	 * Returns true if the given url may have been added to this set.
+	 * @param url
+	 * @return false only if the url was definitely never added
+	 */
+	boolean contains(String url);
+
+	/**
+	 * Returns the number of urls added to this set.
+	 * @return number of urls for which add() returned true
+	 */
+	long size();
+
+	/**
+	 * Returns the number of bytes of table memory held by this set,
+	 * not counting fixed object overhead.
+	 * @return approximate memory use in bytes
+	 */
+	long memoryBytes();
+}
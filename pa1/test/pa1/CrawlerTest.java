@@ -0,0 +1,300 @@
+package pa1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import api.Graph;
+
+/**
+ * Crawls a synthetic site served by an embedded HTTP server, checking
+ * that serial and concurrent crawls build the same graph, that both stay
+ * within maxDepth and maxPages, that a concurrent crawl does not download
+ * much more than a serial one and stores every page it downloads in full,
+ * that a crawl with a history of the previous one skips the pages that did
+ * not change, and that requests to the site are spread out as the rate
+ * limiter allows.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class CrawlerTest {
+	private static final int PAGES = 300;
+	private static final int LINKS = 5;
+
+	private static HttpServer server;
+	private static ExecutorService pool;
+	private static String base;
+	// page id and arrival time of every request, in arrival order
+	private static final List<long[]> requests = Collections.synchronizedList(new ArrayList<long[]>());
+	// version of the text of every page, sent as its ETag
+	private static final int[] version = new int[PAGES];
+
+	@BeforeAll
+	static void startServer() throws IOException {
+		// without it, delayed ACKs add about 40 ms to every request
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int id = Integer.parseInt(exchange.getRequestURI().getPath().substring(3));
+				requests.add(new long[] { id, System.nanoTime() });
+				String etag = "\"" + id + "-" + version[id] + "\"";
+				if(etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+				StringBuilder sb = new StringBuilder("<html><body>page ").append(id).append(" version ").append(version[id]);
+				for(int link : links(id)) {
+					sb.append(" <a href='/p/").append(link).append("'>next</a>");
+				}
+				byte[] body = sb.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "text/html");
+				exchange.getResponseHeaders().add("ETag", etag);
+				exchange.sendResponseHeaders(200, body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				exchange.close();
+			}
+		});
+		pool = Executors.newFixedThreadPool(8);
+		server.setExecutor(pool);
+		server.start();
+		base = "http://localhost:" + server.getAddress().getPort() + "/p/";
+	}
+
+	@AfterAll
+	static void stopServer() {
+		server.stop(0);
+		pool.shutdown();
+	}
+
+	@BeforeEach
+	void resetSite() {
+		requests.clear();
+		Arrays.fill(version, 0);
+	}
+
+	@Test
+	void serialAndConcurrentCrawlsBuildTheSameGraph() {
+		for(int[] limits : new int[][] { { 3, 100 }, { 2, 1000 }, { 5, 250 }, { 0, 10 }, { 10, 1 } }) {
+			Graph<String> serial = crawler(limits[0], limits[1], 1).crawl();
+			for(int threads : new int[] { 2, 8 }) {
+				Graph<String> concurrent = crawler(limits[0], limits[1], threads).crawl();
+				String what = "maxDepth " + limits[0] + " maxPages " + limits[1] + " threads " + threads;
+				assertEquals(serial.vertexData(), concurrent.vertexData(), what);
+				for(int i = 0; i < serial.vertexData().size(); i++) {
+					assertEquals(serial.getNeighbors(i), concurrent.getNeighbors(i), what + " vertex " + i);
+					assertEquals(serial.getIncoming(i), concurrent.getIncoming(i), what + " vertex " + i);
+				}
+			}
+		}
+	}
+
+	@Test
+	void crawlsStayWithinMaxDepth() {
+		int[] distance = distances();
+		for(int threads : new int[] { 1, 8 }) {
+			for(int maxDepth = 0; maxDepth <= 3; maxDepth++) {
+				requests.clear();
+				Graph<String> web = crawler(maxDepth, Integer.MAX_VALUE, threads).crawl();
+				Set<Integer> fetched = new HashSet<Integer>();
+				for(long[] request : requests) {
+					fetched.add((int) request[0]);
+				}
+				Set<Integer> expected = new HashSet<Integer>();
+				for(int id = 0; id < PAGES; id++) {
+					if(distance[id] <= maxDepth) {
+						expected.add(id);
+					}
+				}
+				assertEquals(expected, fetched, "pages fetched with maxDepth " + maxDepth + " threads " + threads);
+				for(String url : web.vertexData()) {
+					int id = Integer.parseInt(url.substring(base.length()));
+					assertTrue(distance[id] <= maxDepth + 1, url + " is too far from the seed");
+				}
+			}
+		}
+	}
+
+	@Test
+	void crawlsStayWithinMaxPages() {
+		for(int threads : new int[] { 1, 8 }) {
+			for(int maxPages : new int[] { 1, 2, 17, 100 }) {
+				requests.clear();
+				Graph<String> web = crawler(Integer.MAX_VALUE, maxPages, threads).crawl();
+				assertEquals(maxPages, web.vertexData().size(), "threads " + threads);
+				Set<String> fetched = new HashSet<String>();
+				for(long[] request : requests) {
+					fetched.add(base + request[0]);
+				}
+				assertTrue(web.vertexData().containsAll(fetched), "only vertices are fetched, threads " + threads);
+			}
+		}
+	}
+
+	@Test
+	void concurrentCrawlsFetchAtMostAFewPagesMoreThanSerialCrawls() {
+		int threads = 8;
+		// maxPages is reached part way through the third or fourth level
+		for(int maxPages : new int[] { 20, 60, 120, 200 }) {
+			requests.clear();
+			crawler(Integer.MAX_VALUE, maxPages, 1).crawl();
+			int serial = requests.size();
+			requests.clear();
+			crawler(Integer.MAX_VALUE, maxPages, threads).crawl();
+			// pages already being downloaded when the graph fills up are not cancelled
+			assertTrue(requests.size() <= serial + threads - 1,
+					requests.size() + " requests against " + serial + " serially with maxPages " + maxPages);
+		}
+	}
+
+	@Test
+	void pagesFetchedAheadAreStoredInFull() {
+		for(int maxPages : new int[] { 20, 60, 120, 200 }) {
+			requests.clear();
+			PageStore store = new PageStore(Long.MAX_VALUE);
+			Crawler crawler = crawler(Integer.MAX_VALUE, maxPages, 8);
+			crawler.setPageStore(store);
+			crawler.crawl();
+			for(long[] request : new ArrayList<long[]>(requests)) {
+				String text = store.get(base + request[0]);
+				assertTrue(text != null && text.startsWith("page " + request[0] + " "),
+						"page " + request[0] + " stored as \"" + text + "\" with maxPages " + maxPages);
+			}
+		}
+	}
+
+	@Test
+	void recrawlsWithAHistorySkipUnchangedPages() {
+		for(int threads : new int[] { 1, 8 }) {
+			Arrays.fill(version, 0);
+			CrawlHistory history = new CrawlHistory();
+			Crawler first = crawler(Integer.MAX_VALUE, Integer.MAX_VALUE, threads);
+			first.setHistory(history);
+			Graph<String> before = first.crawl();
+
+			// changes the text of some pages, but not their links
+			Set<String> modified = new HashSet<String>();
+			for(int id = 0; id < PAGES; id += 7) {
+				version[id]++;
+				if(before.vertexData().contains(base + id)) {
+					modified.add(base + id);
+				}
+			}
+			Crawler second = crawler(Integer.MAX_VALUE, Integer.MAX_VALUE, threads);
+			second.setHistory(history);
+			Graph<String> after = second.crawl();
+			Graph<String> full = crawler(Integer.MAX_VALUE, Integer.MAX_VALUE, threads).crawl();
+
+			assertEquals(full.vertexData(), after.vertexData(), "threads " + threads);
+			for(int i = 0; i < full.vertexData().size(); i++) {
+				assertEquals(full.getNeighbors(i), after.getNeighbors(i), "threads " + threads + " vertex " + i);
+			}
+			assertEquals(modified, new HashSet<String>(second.getChangedUrls()), "threads " + threads);
+			assertEquals(modified.size(), second.getChangedUrls().size(), "threads " + threads);
+			assertEquals(after.vertexData().size() - modified.size(), second.getPagesUnchanged(), "threads " + threads);
+			assertTrue(second.getBytesSaved() > 0, "threads " + threads);
+			assertTrue(second.getRemovedUrls().isEmpty(), "threads " + threads);
+
+			// a smaller crawl leaves out the pages beyond maxPages
+			Crawler third = crawler(Integer.MAX_VALUE, 50, threads);
+			third.setHistory(history);
+			Graph<String> smaller = third.crawl();
+			List<String> removed = new ArrayList<String>(after.vertexData());
+			removed.removeAll(smaller.vertexData());
+			assertEquals(removed, third.getRemovedUrls(), "threads " + threads);
+		}
+	}
+
+	@Test
+	void requestsStayWithinTheRateLimit() {
+		int burst = 4;
+		long periodMillis = 200;
+		for(int threads : new int[] { 1, 4 }) {
+			requests.clear();
+			Crawler crawler = new Crawler(base + 0, Integer.MAX_VALUE, 80, threads);
+			crawler.setRateLimiter(new HostRateLimiter(burst, periodMillis));
+			crawler.crawl();
+			List<long[]> arrivals = new ArrayList<long[]>(requests);
+			assertTrue(arrivals.size() > 2 * burst, "enough requests to exceed the burst");
+			// the limiter allows burst requests at once, then one every periodMillis / burst
+			long spacing = periodMillis * 1000000 / burst;
+			long first = arrivals.get(0)[1];
+			for(int i = burst; i < arrivals.size(); i++) {
+				long earliest = first + (i - burst + 1) * spacing;
+				// some slack for the clock granularity of the limiter
+				assertTrue(arrivals.get(i)[1] >= earliest - 15000000, "request " + i + " came too early, threads " + threads);
+			}
+		}
+	}
+
+	private static Crawler crawler(int maxDepth, int maxPages, int threads) {
+		Crawler crawler = new Crawler(base + 0, maxDepth, maxPages, threads);
+		crawler.setRateLimiter(new HostRateLimiter(Integer.MAX_VALUE, 1));
+		return crawler;
+	}
+
+	/**
+	 * Returns the ids of the pages the given page links to, in order,
+	 * with repeats and links back to the page itself.
+	 * @param id
+	 * @return linked page ids
+	 */
+	private static int[] links(int id) {
+		Random rand = new Random(id);
+		int[] links = new int[LINKS];
+		for(int i = 0; i < LINKS; i++) {
+			links[i] = rand.nextInt(PAGES);
+		}
+		return links;
+	}
+
+	/**
+	 * Returns the number of links on the shortest path from the seed to
+	 * every page of the site, or Integer.MAX_VALUE for unreachable pages.
+	 * @return distance of each page
+	 */
+	private static int[] distances() {
+		int[] distance = new int[PAGES];
+		Arrays.fill(distance, Integer.MAX_VALUE);
+		distance[0] = 0;
+		Queue<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(0);
+		while(!queue.isEmpty()) {
+			int id = queue.remove();
+			for(int link : links(id)) {
+				if(distance[link] == Integer.MAX_VALUE) {
+					distance[link] = distance[id] + 1;
+					queue.add(link);
+				}
+			}
+		}
+		return distance;
+	}
+}
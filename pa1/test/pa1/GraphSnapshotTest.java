@@ -0,0 +1,111 @@
+package pa1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import api.Graph;
+import api.TaggedVertex;
+
+/**
+ * Writes graphs with GraphSnapshot, opens them again and checks that
+ * the reopened graph has the same vertices, edges and incoming counts.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class GraphSnapshotTest {
+	@TempDir
+	Path dir;
+
+	@Test
+	void emptyGraph() throws IOException {
+		MyGraph<String> graph = new MyGraph<String>(new ArrayList<String>());
+		Graph<String> opened = roundTrip(graph);
+		assertEquals(0, opened.vertexData().size());
+		assertEquals(0, opened.vertexDataWithIncomingCounts().size());
+	}
+
+	@Test
+	void verticesWithoutEdges() throws IOException {
+		MyGraph<String> graph = new MyGraph<String>(urls("http://a.example/", "http://b.example/x", "http://c.example/y?z=1"));
+		Graph<String> opened = roundTrip(graph);
+		assertSameGraph(graph, opened);
+		for(int i = 0; i < 3; i++) {
+			assertEquals(0, opened.getNeighbors(i).size());
+			assertEquals(0, opened.getIncoming(i).size());
+		}
+	}
+
+	@Test
+	void edgesKeepTheirOrder() throws IOException {
+		MyGraph<String> graph = new MyGraph<String>(urls("http://a/0", "http://a/1", "http://a/2", "http://a/3"));
+		graph.addEdge("http://a/0", "http://a/1");
+		graph.addEdge("http://a/0", "http://a/2");
+		graph.addEdge("http://a/0", "http://a/3");
+		graph.addEdge("http://a/2", "http://a/0");
+		graph.addEdge("http://a/3", "http://a/2");
+		graph.addEdge("http://a/1", "http://a/2");
+		Graph<String> opened = roundTrip(graph);
+		assertSameGraph(graph, opened);
+		assertEquals(Arrays.asList(0, 3, 1), opened.getIncoming(2));
+	}
+
+	@Test
+	void nonAsciiUrls() throws IOException {
+		MyGraph<String> graph = new MyGraph<String>(urls("http://b\u00fccher.example/stra\u00dfe", "http://\u4f8b\u3048.jp/\u30d1\u30b9",
+				"http://example.com/caf\u00e9", "http://example.com/\ud83d\ude00", "http://example.com/"));
+		graph.addEdge("http://b\u00fccher.example/stra\u00dfe", "http://\u4f8b\u3048.jp/\u30d1\u30b9");
+		graph.addEdge("http://\u4f8b\u3048.jp/\u30d1\u30b9", "http://example.com/\ud83d\ude00");
+		graph.addEdge("http://example.com/\ud83d\ude00", "http://b\u00fccher.example/stra\u00dfe");
+		graph.addEdge("http://example.com/", "http://example.com/caf\u00e9");
+		Graph<String> opened = roundTrip(graph);
+		assertSameGraph(graph, opened);
+		assertEquals("http://\u4f8b\u3048.jp/\u30d1\u30b9", opened.vertexData().get(1));
+	}
+
+	@Test
+	void largeGraph() throws IOException {
+		ArrayList<String> urls = new ArrayList<String>();
+		for(int i = 0; i < 2000; i++) {
+			urls.add("http://example.com/page/" + i);
+		}
+		MyGraph<String> graph = new MyGraph<String>(urls);
+		for(int i = 0; i < urls.size(); i++) {
+			for(int k = 1; k <= i % 7; k++) {
+				graph.addEdge(urls.get(i), urls.get((i * 31 + k * 17) % urls.size()));
+			}
+		}
+		assertSameGraph(graph, roundTrip(graph));
+	}
+
+	private Graph<String> roundTrip(Graph<String> graph) throws IOException {
+		File file = dir.resolve("graph.snapshot").toFile();
+		GraphSnapshot.write(graph, file);
+		return GraphSnapshot.open(file);
+	}
+
+	private static ArrayList<String> urls(String... urls) {
+		return new ArrayList<String>(Arrays.asList(urls));
+	}
+
+	private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+		assertEquals(expected.vertexData(), actual.vertexData());
+		List<TaggedVertex<String>> expectedCounts = expected.vertexDataWithIncomingCounts();
+		List<TaggedVertex<String>> actualCounts = actual.vertexDataWithIncomingCounts();
+		assertEquals(expectedCounts.size(), actualCounts.size());
+		for(int i = 0; i < expectedCounts.size(); i++) {
+			assertEquals(expectedCounts.get(i).getVertexData(), actualCounts.get(i).getVertexData());
+			assertEquals(expectedCounts.get(i).getTagValue(), actualCounts.get(i).getTagValue());
+			assertEquals(expected.getNeighbors(i), actual.getNeighbors(i));
+			assertEquals(expected.getIncoming(i), actual.getIncoming(i));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package pa1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import api.Util;
+
+/**
+ * Checks that LinkFilter gives the same answer as Util.ignoreLink, both
+ * for links on its fast path and for the unusual forms it hands over.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class LinkFilterTest {
+	private static final String[] PAGES = { "http://a.com/wiki/Foo", "https://en.wikipedia.org/wiki/Foo",
+			"http://a.com", "http://A.com/", "http://a.com/wiki/Foo/", "http://a.com:8080/x", "http://[::1]/wiki/Foo",
+			"http://u@a.com/wiki/Foo", "not a url", "http:///" };
+
+	@Test
+	void dotSegments() {
+		check("http://a.com/wiki/./Foo", "http://a.com/wiki/../wiki/Bar", "http://a.com/./", "http://a.com/..",
+				"http://a.com/a/.", "http://a.com/a/..", "http://a.com/.hidden", "http://a.com/a/.b/c",
+				"http://a.com/wiki/Foo/.", "http://a.com/a/b/../../c:d");
+	}
+
+	@Test
+	void explicitPorts() {
+		check("http://a.com:80/wiki/Bar", "http://a.com:8080/wiki/Bar", "http://a.com:/wiki/Bar",
+				"http://a.com:99999/x", "http://a.com:123456/x", "http://a.com:8a/x", "http://a.com:80:90/x",
+				"https://en.wikipedia.org:443/wiki/Bar", "http://:80/x", "http://a.com:80");
+	}
+
+	@Test
+	void userinfo() {
+		check("http://u@a.com/wiki/Bar", "http://u:p@a.com/wiki/Bar", "http://@a.com/x", "http://u@a.com:80/x",
+				"http://a.com@b.com/x", "http://u@/x");
+	}
+
+	@Test
+	void ipv6Hosts() {
+		check("http://[::1]/wiki/Bar", "http://[::1]:80/x", "http://[::1]/a:b", "http://[2001:db8::1]/x",
+				"http://[::1/x", "http://::1]/x", "http://[]/x");
+	}
+
+	@Test
+	void surroundingWhitespace() {
+		check(" http://a.com/wiki/Bar", "http://a.com/wiki/Bar ", "\thttp://a.com/x\t", "http://a.com/x\n",
+				"http://a .com/x", "http://a.com/a b", " ", "");
+	}
+
+	@Test
+	void queryOrFragmentDirectlyAfterHost() {
+		check("http://a.com?x=1", "http://a.com#frag", "http://a.com?", "http://a.com#", "http://a.com?x=a:b",
+				"http://a.com#a:b", "http://a.com:80?x", "http://a.com:80#f", "http://a.com?q#f", "http://a.com#f?q",
+				"http://a.com?x=/y#z:w");
+	}
+
+	@Test
+	void otherSchemesAndMalformedLinks() {
+		check("https://a.com/wiki/Bar", "HTTP://a.com/x", "ftp://a.com/x", "mailto:u@a.com", "javascript:void(0)",
+				"http:/a.com/x", "http:a.com/x", "//a.com/x", "/wiki/Bar", "http://", "http://a.com\\x",
+				"http://\u00e9.com/x", "http://a.com/\u00e4", "http://a_b.com/x", "http://a.com/a%3Ab");
+	}
+
+	@Test
+	void generatedLinks() {
+		String[] schemes = { "http://", "https://", "HTTP://", "ftp://", "", "http:/", " http://" };
+		String[] hosts = { "a.com", "A.com", "en.wikipedia.org", "", "x-y.z", "a.com:80", "a.com:", "[::1]",
+				"u@a.com", "a_b.com", "a.com:8a" };
+		String[] paths = { "", "/", "/wiki/Foo", "/wiki/Foo:Bar", "/a/./b", "/a/../b", "/.", "/..", "//",
+				"/a:b/c", "/a%3Ab", "/a b" };
+		String[] tails = { "", "?", "?x=1", "?x=a:b", "#", "#frag", "#a:b", "?q#f", " ", "\t" };
+		List<String> links = new ArrayList<String>();
+		for(String scheme : schemes) {
+			for(String host : hosts) {
+				for(String path : paths) {
+					for(String tail : tails) {
+						links.add(scheme + host + path + tail);
+					}
+				}
+			}
+		}
+		Random rand = new Random(1);
+		String chars = "/:?#.@[]%aA0 \\-_";
+		for(int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder(rand.nextBoolean() ? "http://" : "https://");
+			int length = rand.nextInt(20);
+			for(int k = 0; k < length; k++) {
+				sb.append(rand.nextInt(3) == 0 ? chars.charAt(rand.nextInt(chars.length())) : (char) ('a' + rand.nextInt(3)));
+			}
+			links.add(sb.toString());
+		}
+		check(links.toArray(new String[links.size()]));
+	}
+
+	private static void check(String... links) {
+		for(String page : PAGES) {
+			LinkFilter filter = new LinkFilter(page);
+			for(String link : links) {
+				assertEquals(Util.ignoreLink(page, link), filter.ignore(link), "page [" + page + "] link [" + link + "]");
+			}
+		}
+	}
+}
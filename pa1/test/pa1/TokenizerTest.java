@@ -0,0 +1,111 @@
+package pa1;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that Tokenizer produces the same terms as the original parsing
+ * of page bodies, which read them with a java.util.Scanner and passed each
+ * token through Util.stripPunctuation.
+ *
+ * @author Lorenzo Zenitsky, Gabrielle Johnston
+ */
+class TokenizerTest {
+	@Test
+	void emptyAndWhitespaceOnly() {
+		check("");
+		check(" ");
+		check("\t\n\r \u000b\f");
+		check("\u2003\u3000\u2028\u0085\u001c");
+	}
+
+	@Test
+	void punctuationHeavy() {
+		check("Hello, world! (This) is -- a \"test\"; of: punctuation... ok?");
+		check("...,,,;;; !!! ??? --- \"\" '' () [] {}");
+		check("a.b.c d-e-f g/h/i j_k_l m@n#o $p%q^r&s*t");
+	}
+
+	@Test
+	void apostrophes() {
+		check("don't won't it's o'clock rock'n'roll 'quoted' ''");
+		check("the dog's bones, the dogs' bones, l'\u00e9t\u00e9 \u2019curly\u2019 d\u2019accord");
+	}
+
+	@Test
+	void digits() {
+		check("route 66 3.14159 1st 2nd 3rd 4th 2019-10-01 0x1F 1e10 v2 mp3");
+		check("12345 67890 ---123--- a1b2c3");
+	}
+
+	@Test
+	void unicodeLetters() {
+		check("caf\u00e9 na\u00efve R\u00e9SUM\u00e9 stra\u00dfe STRASSE \u1e9e \u00c0\u00c9\u00ce\u00d5\u00dc");
+		check("\u0130stanbul \u0131\u0131 IIi \u212a\u212b \u017f\u017ft \ufb01ne \uff21\uff42\uff43");
+		check("\u65e5\u672c\u8a9e \u0440\u0443\u0441\u0441\u043a\u0438\u0439 \u0395\u03bb\u03bb\u03b7\u03bd\u03b9\u03ba\u03ac \ud83d\ude00smile\ud83d\ude00");
+	}
+
+	@Test
+	void largeBody() {
+		Random rand = new Random(7);
+		String[] words = { "the", "Index", "search", "don't", "3rd", "caf\u00e9", "A.B.", "--", "x", "QUERY!" };
+		String[] gaps = { " ", "  ", "\n", "\t", " \r\n ", "\u00a0", "\u3000" };
+		StringBuilder sb = new StringBuilder();
+		while(sb.length() < 1000000) {
+			sb.append(words[rand.nextInt(words.length)]).append(gaps[rand.nextInt(gaps.length)]);
+		}
+		check(sb.toString());
+	}
+
+	@Test
+	void randomCharacters() {
+		Random rand = new Random(1);
+		String pool = "abcXYZ iI\t\n  \u0130K\u00e9\u00c9.,;:!?'\"-0123\u3000\u00df\u1e9e\ud83d\ude00\u0085\u001c\u212a";
+		for(int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = rand.nextInt(60);
+			for(int k = 0; k < length; k++) {
+				sb.append(pool.charAt(rand.nextInt(pool.length())));
+			}
+			check(sb.toString());
+		}
+	}
+
+	/**
+	 * Asserts that the tokenizer gives the terms of the original parsing.
+	 * @param text
+	 */
+	private static void check(String text) {
+		final List<String> terms = new ArrayList<String>();
+		new Tokenizer().tokenize(text, new Tokenizer.TermSink() {
+			@Override
+			public void term(char[] buffer, int length) {
+				terms.add(new String(buffer, 0, length));
+			}
+		});
+		assertEquals(baseline(text), terms, text);
+	}
+
+	/**
+	 * Splits text into terms as Index did before Tokenizer: a Scanner splits
+	 * it at whitespace, and each token is lowercased and stripped of every
+	 * character other than 'a' through 'z'.
+	 * @param text
+	 * @return terms of the text
+	 */
+	private static List<String> baseline(String text) {
+		List<String> terms = new ArrayList<String>();
+		Scanner scanner = new Scanner(text);
+		while(scanner.hasNext()) {
+			terms.add(scanner.next().toLowerCase().replaceAll("[^a-z]", ""));
+		}
+		scanner.close();
+		return terms;
+	}
+}